@@ -0,0 +1,116 @@
+package com.example.siamLacorns.benchmark;
+
+import com.example.siamLacorns.model.Actor;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.User;
+import com.example.siamLacorns.model.UserWatchHistory;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Синтетические данные для бенчмарков. Размеры (эпизоды, актёры) задаются параметрами JMH,
+ * содержимое детерминировано, чтобы прогоны были сравнимы между собой.
+ */
+public final class Fixtures {
+
+    private static final String[] GENRES = {"Drama", "Romance", "Comedy", "Thriller", "Fantasy", "Historical"};
+    private static final String[] COUNTRIES = {"Thailand", "South Korea", "Japan", "China", "Taiwan"};
+
+    private Fixtures() {
+    }
+
+    public static Lacorn lacorn(long id, int episodesPerShow, int actorsPerShow) {
+        Lacorn lacorn = new Lacorn();
+        lacorn.setId(id);
+        lacorn.setTitle("Lacorn " + id);
+        lacorn.setDescription(("Synthetic description for lacorn " + id + ". ").repeat(8));
+        lacorn.setReleaseYear(2000 + (int) (id % 25));
+        lacorn.setTotalEpisodes(episodesPerShow);
+        lacorn.setEpisodeDuration(45);
+        lacorn.setPosterUrl("/uploads/posters/" + id + ".jpg");
+        lacorn.setTrailerUrl("https://www.youtube.com/watch?v=trailer" + id);
+        lacorn.setGenres(new ArrayList<>(List.of(GENRES[(int) (id % GENRES.length)], GENRES[(int) ((id + 1) % GENRES.length)])));
+        lacorn.setProductionCountries(new ArrayList<>(List.of(COUNTRIES[(int) (id % COUNTRIES.length)])));
+        lacorn.setAgeRating("PG-13");
+        lacorn.setRating(5.0 + (id % 50) / 10.0);
+        lacorn.setStatus(Lacorn.SeriesStatus.values()[(int) (id % Lacorn.SeriesStatus.values().length)]);
+
+        List<Actor> actors = new ArrayList<>();
+        for (int i = 0; i < actorsPerShow; i++) {
+            actors.add(actor(id * 1000 + i));
+        }
+        lacorn.setActors(actors);
+
+        List<Episode> episodes = new ArrayList<>();
+        for (int i = 0; i < episodesPerShow; i++) {
+            episodes.add(episode(lacorn, id * 10_000 + i, i + 1));
+        }
+        lacorn.setEpisodes(episodes);
+        return lacorn;
+    }
+
+    public static Actor actor(long id) {
+        Actor actor = new Actor();
+        actor.setId(id);
+        actor.setName("Actor " + id);
+        actor.setBiography(("Biography of actor " + id + ". ").repeat(4));
+        actor.setPhotoUrl("/uploads/actors/" + id + ".jpg");
+        actor.setBirthDate(LocalDate.of(1980 + (int) (id % 20), 1 + (int) (id % 12), 1 + (int) (id % 28)));
+        actor.setNationality(COUNTRIES[(int) (id % COUNTRIES.length)]);
+        return actor;
+    }
+
+    public static Episode episode(Lacorn lacorn, long id, int number) {
+        Episode episode = new Episode("Episode " + number, number, 1, "/videos/" + id + ".mp4");
+        episode.setId(id);
+        episode.setDescription("Episode " + number + " of " + lacorn.getTitle());
+        episode.setDuration(45);
+        episode.setLacorn(lacorn);
+        return episode;
+    }
+
+    public static User user(long id) {
+        User user = new User("user" + id, "user" + id + "@bench.local", LocalDate.of(1995, 5, 5), "password");
+        user.setId(id);
+        user.setRole("USER");
+        return user;
+    }
+
+    // Прогресс по каждому второму эпизоду и по сериалу в целом
+    public static List<UserWatchHistory> watchHistory(User user, Lacorn lacorn) {
+        List<UserWatchHistory> histories = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<Episode> episodes = lacorn.getEpisodes();
+        for (int i = 0; i < episodes.size(); i += 2) {
+            UserWatchHistory history = new UserWatchHistory(user, lacorn, episodes.get(i));
+            history.setCurrentTime(600 + i);
+            history.setCompleted(i % 4 == 0);
+            history.setLastWatched(now.plusMinutes(i));
+            histories.add(history);
+        }
+        return histories;
+    }
+
+    // Поля, которые в приложении заполняет Spring (@Value, @Autowired)
+    public static void inject(Object target, String fieldName, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass());
+    }
+}
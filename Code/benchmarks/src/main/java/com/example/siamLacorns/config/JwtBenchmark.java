@@ -0,0 +1,96 @@
+package com.example.siamLacorns.config;
+
+import com.example.siamLacorns.benchmark.Fixtures;
+import com.example.siamLacorns.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость аутентификации запроса по JWT.
+ * legacyRequestValidation воспроизводит прежний путь фильтра (ключ и парсер на каждый вызов,
+ * три разбора токена) - это точка «до»; parse* - текущий JwtUtil.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "mySecretKeyForJWTGenerationThatIsAtLeast32BytesLong!";
+
+    private JwtUtil jwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private UserDetailsImpl userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = jwtUtil(10_000);
+        // Кэш нулевого размера: каждый вызов честно проверяет подпись
+        uncachedJwtUtil = jwtUtil(0);
+        userDetails = new UserDetailsImpl(Fixtures.user(42));
+        token = jwtUtil.generateToken(userDetails);
+    }
+
+    private static JwtUtil jwtUtil(long verifiedCacheSize) {
+        JwtUtil util = new JwtUtil();
+        Fixtures.inject(util, "secret", SECRET);
+        Fixtures.inject(util, "expiration", 86_400L);
+        Fixtures.inject(util, "verifiedCacheMaximumSize", verifiedCacheSize);
+        Fixtures.inject(util, "verifiedCacheTtl", Duration.ofMinutes(5));
+        util.init();
+        return util;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public boolean legacyRequestValidation() {
+        // extractUsername в фильтре, затем validateToken: extractUsername + isTokenExpired
+        String username = legacyClaims(token).getSubject();
+        boolean valid = legacyClaims(token).getSubject().equals(userDetails.getUsername())
+                && !legacyClaims(token).getExpiration().before(new Date());
+        return username != null && valid;
+    }
+
+    @Benchmark
+    public boolean parseUncached() {
+        return uncachedJwtUtil.validateToken(uncachedJwtUtil.parse(token), userDetails);
+    }
+
+    @Benchmark
+    public boolean parseCached() {
+        return jwtUtil.validateToken(jwtUtil.parse(token), userDetails);
+    }
+
+    private static Claims legacyClaims(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.siamLacorns.dto;
+
+import com.example.siamLacorns.benchmark.Fixtures;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация страницы каталога так, как её отдаёт GET /api/lacorns
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LacornPageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"0", "16"})
+    private int episodesPerShow;
+
+    @Param({"5", "40"})
+    private int actorsPerShow;
+
+    private ObjectMapper objectMapper;
+    private Page<LacornDTO> page;
+
+    @Setup
+    public void setUp() {
+        // Те же настройки, что у ObjectMapper в Spring Boot по умолчанию
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        List<LacornDTO> content = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            Lacorn lacorn = Fixtures.lacorn(i + 1, episodesPerShow, actorsPerShow);
+            LacornDTO dto = new LacornDTO(lacorn);
+            if (episodesPerShow > 0) {
+                List<EpisodeDTO> episodes = new ArrayList<>();
+                for (Episode episode : lacorn.getEpisodes()) {
+                    episodes.add(new EpisodeDTO(episode));
+                }
+                dto.setEpisodes(episodes);
+            }
+            content.add(dto);
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
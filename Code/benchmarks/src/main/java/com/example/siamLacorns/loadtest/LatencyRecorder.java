@@ -0,0 +1,56 @@
+package com.example.siamLacorns.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Задержки одного эндпоинта в одном потоке нагрузки. Без синхронизации:
+ * каждый виртуальный пользователь пишет в свои экземпляры, в конце они сливаются через merge.
+ */
+final class LatencyRecorder {
+
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+    private int errors;
+
+    void record(long latencyNanos, boolean success) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyRecorder other) {
+        if (count + other.count > latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, Math.max(latenciesNanos.length * 2, count + other.count));
+        }
+        System.arraycopy(other.latenciesNanos, 0, latenciesNanos, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    // Перцентили по отсортированной копии (nearest-rank), в миллисекундах
+    double[] percentilesMillis(double... percentiles) {
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        double[] result = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (count == 0) {
+                continue;
+            }
+            int rank = (int) Math.ceil(percentiles[i] / 100.0 * count);
+            result[i] = sorted[Math.min(count, Math.max(1, rank)) - 1] / 1_000_000.0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.siamLacorns.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузочный сценарий против запущенного приложения с засеянным каталогом (профиль seed, CatalogSeeder).
+ * Замкнутая модель: каждый виртуальный пользователь логинится под своим loadtest_N и в цикле
+ * листает каталог, открывает карточки, шлёт прогресс просмотра, читает и пополняет коллекции.
+ * По каждому эндпоинту печатаются число запросов, ошибки, пропускная способность, p50/p99 и максимум.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.siamLacorns.loadtest.LoadTestDriver \
+ *     --base-url=http://localhost:8081 --users=100 --duration-seconds=120 --warmup-seconds=15
+ * </pre>
+ */
+public class LoadTestDriver {
+
+    private static final String CATALOG = "GET /api/lacorns";
+    private static final String DETAILS = "GET /api/lacorns/{id}";
+    private static final String WATCH = "POST /api/lacorns/watch";
+    private static final String COLLECTIONS = "GET /api/users/{id}/collections";
+    private static final String ADD_TO_COLLECTION = "POST /api/users/{id}/collections/{name}/series/{id}";
+    private static final String LOGIN = "POST /api/auth/login";
+
+    // Доли операций в сценарии, в сумме 100
+    private static final Map<String, Integer> MIX = new LinkedHashMap<>();
+
+    static {
+        MIX.put(CATALOG, 30);
+        MIX.put(DETAILS, 30);
+        MIX.put(WATCH, 25);
+        MIX.put(COLLECTIONS, 7);
+        MIX.put(ADD_TO_COLLECTION, 3);
+        MIX.put(LOGIN, 5);
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int users;
+    private final int seededUsers;
+    private final String usernamePrefix;
+    private final String password;
+    private final int pageSize;
+    private final long thinkTimeMillis;
+    private final long randomSeed;
+
+    private List<Long> lacornIds = List.of();
+    private List<Long> episodeIds = List.of();
+    private int catalogPages = 1;
+
+    LoadTestDriver(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:8081");
+        this.users = Integer.parseInt(options.getOrDefault("users", "50"));
+        this.seededUsers = Integer.parseInt(options.getOrDefault("seeded-users", "500"));
+        this.usernamePrefix = options.getOrDefault("username-prefix", "loadtest");
+        this.password = options.getOrDefault("password", "loadtest");
+        this.pageSize = Integer.parseInt(options.getOrDefault("page-size", "20"));
+        this.thinkTimeMillis = Long.parseLong(options.getOrDefault("think-time-ms", "0"));
+        this.randomSeed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LoadTestDriver driver = new LoadTestDriver(options);
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "10")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "60")));
+
+        driver.discoverCatalog();
+        driver.run(warmup, duration);
+    }
+
+    // Идентификаторы лакорнов и эпизодов, по которым будет ходить сценарий
+    void discoverCatalog() throws IOException, InterruptedException {
+        JsonNode page = getJson("/api/lacorns?page=0&size=200", null);
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode lacorn : page.path("content")) {
+            ids.add(lacorn.path("id").asLong());
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("Catalog is empty: start the application with the 'seed' profile first");
+        }
+        long totalElements = page.path("totalElements").asLong(ids.size());
+        catalogPages = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (totalElements + pageSize - 1) / pageSize));
+
+        List<Long> episodes = new ArrayList<>();
+        for (Long lacornId : ids.subList(0, Math.min(50, ids.size()))) {
+            for (JsonNode episode : getJson("/api/lacorns/" + lacornId + "/episodes", null)) {
+                episodes.add(episode.path("id").asLong());
+            }
+        }
+        if (episodes.isEmpty()) {
+            throw new IllegalStateException("Seeded lacorns have no episodes");
+        }
+        lacornIds = ids;
+        episodeIds = episodes;
+        System.out.printf("Catalog: %d lacorns total, sampling %d lacorns and %d episodes%n",
+                totalElements, lacornIds.size(), episodeIds.size());
+    }
+
+    void run(Duration warmup, Duration duration) throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        List<Future<Map<String, LatencyRecorder>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                int userIndex = i;
+                results.add(executor.submit(() -> new VirtualUser(userIndex).run(measureFrom, deadline)));
+            }
+        }
+
+        Map<String, LatencyRecorder> merged = new LinkedHashMap<>();
+        for (String endpoint : MIX.keySet()) {
+            merged.put(endpoint, new LatencyRecorder());
+        }
+        for (Future<Map<String, LatencyRecorder>> result : results) {
+            result.get().forEach((endpoint, recorder) -> merged.get(endpoint).merge(recorder));
+        }
+        report(merged, duration);
+    }
+
+    private void report(Map<String, LatencyRecorder> recorders, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf("%nUsers: %d, measured: %.0f s%n", users, seconds);
+        System.out.printf("%-56s %9s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        LatencyRecorder total = new LatencyRecorder();
+        recorders.forEach((endpoint, recorder) -> {
+            printRow(endpoint, recorder, seconds);
+            total.merge(recorder);
+        });
+        printRow("total", total, seconds);
+    }
+
+    private static void printRow(String endpoint, LatencyRecorder recorder, double seconds) {
+        double[] percentiles = recorder.percentilesMillis(50, 99, 100);
+        System.out.printf("%-56s %9d %7d %9.1f %9.2f %9.2f %9.2f%n",
+                endpoint, recorder.count(), recorder.errors(), recorder.count() / seconds,
+                percentiles[0], percentiles[1], percentiles[2]);
+    }
+
+    private JsonNode getJson(String path, String token) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request(path, token).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+
+    private final class VirtualUser {
+
+        private final Random random;
+        private final String username;
+        private final Map<String, LatencyRecorder> recorders = new HashMap<>();
+        private String token;
+        private long userId;
+        private boolean measuring;
+
+        VirtualUser(int index) {
+            this.random = new Random(randomSeed + index);
+            this.username = usernamePrefix + "_" + (index % seededUsers);
+            for (String endpoint : MIX.keySet()) {
+                recorders.put(endpoint, new LatencyRecorder());
+            }
+        }
+
+        Map<String, LatencyRecorder> run(long measureFrom, long deadline) throws InterruptedException {
+            login();
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= deadline) {
+                    return recorders;
+                }
+                measuring = now >= measureFrom;
+                execute(nextOperation());
+                if (thinkTimeMillis > 0) {
+                    Thread.sleep(thinkTimeMillis);
+                }
+            }
+        }
+
+        private String nextOperation() {
+            int roll = random.nextInt(100);
+            for (Map.Entry<String, Integer> entry : MIX.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            return CATALOG;
+        }
+
+        private void execute(String operation) throws InterruptedException {
+            switch (operation) {
+                case CATALOG -> send(CATALOG, request("/api/lacorns?page=" + random.nextInt(catalogPages)
+                        + "&size=" + pageSize, token).GET());
+                case DETAILS -> send(DETAILS, request("/api/lacorns/" + randomLacorn(), token)
+                        .header("X-User-Id", Long.toString(userId)).GET());
+                case WATCH -> send(WATCH, request("/api/lacorns/watch", token)
+                        .header("Content-Type", "application/json")
+                        .POST(json("{\"episodeId\":" + episodeIds.get(random.nextInt(episodeIds.size()))
+                                + ",\"currentTime\":" + random.nextInt(3600)
+                                + ",\"completed\":" + (random.nextInt(10) == 0) + "}")));
+                case COLLECTIONS -> send(COLLECTIONS, request("/api/users/" + userId + "/collections", token).GET());
+                case ADD_TO_COLLECTION -> send(ADD_TO_COLLECTION, request("/api/users/" + userId
+                        + "/collections/Favourites/series/" + randomLacorn(), token)
+                        .POST(HttpRequest.BodyPublishers.noBody()));
+                case LOGIN -> login();
+                default -> throw new IllegalArgumentException(operation);
+            }
+        }
+
+        private long randomLacorn() {
+            return lacornIds.get(random.nextInt(lacornIds.size()));
+        }
+
+        private void login() throws InterruptedException {
+            HttpResponse<String> response = send(LOGIN, request("/api/auth/login", null)
+                    .header("Content-Type", "application/json")
+                    .POST(json("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}")));
+            if (response == null || response.statusCode() != 200) {
+                if (token == null) {
+                    throw new IllegalStateException("Login failed for " + username);
+                }
+                return;
+            }
+            try {
+                JsonNode body = objectMapper.readTree(response.body());
+                token = body.path("token").asText();
+                userId = body.path("userId").asLong();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unexpected login response for " + username, e);
+            }
+        }
+
+        // null - сетевая ошибка; она тоже учитывается как неуспешный запрос
+        private HttpResponse<String> send(String endpoint, HttpRequest.Builder builder) throws InterruptedException {
+            long started = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                response = null;
+            }
+            long latency = System.nanoTime() - started;
+            if (measuring) {
+                boolean success = response != null && response.statusCode() / 100 == 2;
+                recorders.get(endpoint).record(latency, success);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.benchmark.Fixtures;
+import com.example.siamLacorns.dto.EpisodeDTO;
+import com.example.siamLacorns.dto.LacornDTO;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Маппинг сущностей в DTO: LacornService.convertToDTO и convertToEpisodeDTO с прогрессом пользователя
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LacornMappingBenchmark {
+
+    @Param({"10", "100"})
+    private int episodesPerShow;
+
+    @Param({"5", "40"})
+    private int actorsPerShow;
+
+    private LacornService lacornService;
+    private Lacorn lacorn;
+    private WatchStateSnapshot watchState;
+
+    @Setup
+    public void setUp() {
+        lacornService = new LacornService();
+        lacorn = Fixtures.lacorn(1, episodesPerShow, actorsPerShow);
+        User user = Fixtures.user(1);
+        watchState = WatchStateSnapshot.of(Fixtures.watchHistory(user, lacorn));
+    }
+
+    @Benchmark
+    public LacornDTO convertToDTO() {
+        return lacornService.convertToDTO(lacorn, watchState);
+    }
+
+    @Benchmark
+    public void convertEpisodes(Blackhole blackhole) {
+        for (Episode episode : lacorn.getEpisodes()) {
+            EpisodeDTO dto = lacornService.convertToEpisodeDTO(episode, watchState);
+            blackhole.consume(dto);
+        }
+    }
+
+    @Benchmark
+    public WatchStateSnapshot buildWatchState() {
+        return WatchStateSnapshot.of(Fixtures.watchHistory(Fixtures.user(1), lacorn));
+    }
+}
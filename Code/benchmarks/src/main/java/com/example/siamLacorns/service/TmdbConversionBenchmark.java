@@ -0,0 +1,77 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.benchmark.Fixtures;
+import com.example.siamLacorns.dto.TMDBLacornDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Импорт из TMDB: разбор ответа /tv/{id} и TMDBIntegrationService.convertDetailToTMDBLacornDTO
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TmdbConversionBenchmark {
+
+    @Param({"15", "100"})
+    private int actorsPerShow;
+
+    private TMDBIntegrationService service;
+    private ObjectMapper objectMapper;
+    private String json;
+    private TMDBIntegrationService.TMDBDetailResponse detail;
+
+    @Setup
+    public void setUp() throws Exception {
+        service = new TMDBIntegrationService();
+        Fixtures.inject(service, "tmdbImageBase", "https://image.tmdb.org/t/p");
+        // RestTemplate по умолчанию тоже не падает на неизвестных полях ответа
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        json = detailJson(actorsPerShow);
+        detail = objectMapper.readValue(json, TMDBIntegrationService.TMDBDetailResponse.class);
+    }
+
+    @Benchmark
+    public TMDBLacornDTO convertDetail() {
+        return service.convertDetailToTMDBLacornDTO(detail, "tv");
+    }
+
+    @Benchmark
+    public TMDBLacornDTO parseAndConvertDetail() throws Exception {
+        TMDBIntegrationService.TMDBDetailResponse parsed =
+                objectMapper.readValue(json, TMDBIntegrationService.TMDBDetailResponse.class);
+        return service.convertDetailToTMDBLacornDTO(parsed, "tv");
+    }
+
+    private static String detailJson(int castSize) {
+        StringBuilder cast = new StringBuilder();
+        for (int i = 0; i < castSize; i++) {
+            if (i > 0) cast.append(',');
+            cast.append("{\"name\":\"Actor ").append(i)
+                    .append("\",\"character\":\"Character ").append(i)
+                    .append("\",\"profile_path\":\"/profile").append(i).append(".jpg\",\"popularity\":12.5}");
+        }
+        return "{\"id\":94796,\"name\":\"Synthetic Lacorn\",\"overview\":\"" + "Long overview. ".repeat(20) + "\"," +
+                "\"first_air_date\":\"2021-03-01\",\"episode_run_time\":[60],\"number_of_episodes\":16," +
+                "\"poster_path\":\"/poster.jpg\",\"vote_average\":8.4,\"status\":\"Ended\",\"adult\":false," +
+                "\"genres\":[{\"id\":18,\"name\":\"Drama\"},{\"id\":10749,\"name\":\"Romance\"}]," +
+                "\"production_countries\":[{\"iso_3166_1\":\"TH\",\"name\":\"Thailand\"}]," +
+                "\"videos\":{\"results\":[{\"key\":\"teaser\",\"site\":\"YouTube\",\"type\":\"Teaser\"}," +
+                "{\"key\":\"trailer\",\"site\":\"YouTube\",\"type\":\"Trailer\"}]}," +
+                "\"credits\":{\"cast\":[" + cast + "]}}";
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.siamLacorns.config;
+
+import com.example.siamLacorns.model.Actor;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.SeriesCollection;
+import com.example.siamLacorns.model.User;
+import com.example.siamLacorns.model.UserWatchHistory;
+import com.example.siamLacorns.repository.ActorRepository;
+import com.example.siamLacorns.repository.EpisodeRepository;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.example.siamLacorns.repository.UserRepository;
+import com.example.siamLacorns.repository.UserWatchHistoryRepository;
+import com.example.siamLacorns.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Синтетический каталог для нагрузочного тестирования (профиль seed):
+ * актёры, лакорны с эпизодами, пользователи с коллекциями и историей просмотра.
+ * Пишет через те же JPA-модели, поэтому работает и на PostgreSQL, и на H2.
+ * Данные детерминированы seed.random-seed; повторный запуск ничего не делает,
+ * если пользователи с префиксом seed.username-prefix уже есть.
+ * Запускается до ApplicationReadyEvent, так что поисковые индексы строятся уже по засеянной базе.
+ */
+@Component
+@Profile("seed")
+public class CatalogSeeder implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSeeder.class);
+
+    private static final String[] GENRES = {
+            "Drama", "Romance", "Comedy", "Thriller", "Fantasy", "Historical", "Action", "Mystery", "BL", "Family"
+    };
+    private static final String[] COUNTRIES = {"Thailand", "South Korea", "Japan", "China", "Taiwan", "Philippines"};
+    private static final String[] AGE_RATINGS = {"G", "PG", "PG-13", "16+", "18+"};
+    private static final String[] TITLE_WORDS = {
+            "Love", "Moon", "Secret", "Destiny", "Garden", "Storm", "Palace", "Summer", "Promise", "Shadow",
+            "River", "Heart", "Golden", "Silent", "Star", "Tea", "Rain", "Crown", "Bangkok", "Dream"
+    };
+    // Коллекции, которые заполняются при засеве; остальные стандартные остаются пустыми
+    private static final String[] FILLED_COLLECTIONS = {"Favourites", "Watch later"};
+
+    @Autowired
+    private ActorRepository actorRepository;
+    @Autowired
+    private LacornRepository lacornRepository;
+    @Autowired
+    private EpisodeRepository episodeRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserWatchHistoryRepository watchHistoryRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${seed.lacorns:1000}")
+    private int lacornCount;
+
+    @Value("${seed.episodes-per-lacorn:16}")
+    private int episodesPerLacorn;
+
+    @Value("${seed.actors:2000}")
+    private int actorCount;
+
+    @Value("${seed.actors-per-lacorn:8}")
+    private int actorsPerLacorn;
+
+    @Value("${seed.users:500}")
+    private int userCount;
+
+    @Value("${seed.lacorns-per-collection:10}")
+    private int lacornsPerCollection;
+
+    @Value("${seed.histories-per-user:20}")
+    private int historiesPerUser;
+
+    @Value("${seed.username-prefix:loadtest}")
+    private String usernamePrefix;
+
+    @Value("${seed.password:loadtest}")
+    private String password;
+
+    @Value("${seed.random-seed:42}")
+    private long randomSeed;
+
+    @Value("${seed.chunk-size:100}")
+    private int chunkSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (userRepository.existsByUsername(username(0))) {
+            logger.info("Seed data with prefix '{}' already present, skipping", usernamePrefix);
+            return;
+        }
+
+        long started = System.nanoTime();
+        Random random = new Random(randomSeed);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        List<Long> actorIds = seedActors(transaction, random);
+        Map<Long, List<Long>> episodeIdsByLacorn = new HashMap<>();
+        List<Long> lacornIds = seedLacorns(transaction, random, actorIds, episodeIdsByLacorn);
+        seedUsers(transaction, random, lacornIds, episodeIdsByLacorn);
+
+        logger.info("Seeded {} actors, {} lacorns x {} episodes, {} users '{}_*' in {} ms",
+                actorIds.size(), lacornIds.size(), episodesPerLacorn, userCount, usernamePrefix,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private List<Long> seedActors(TransactionTemplate transaction, Random random) {
+        List<Long> ids = new ArrayList<>(actorCount);
+        for (int from = 0; from < actorCount; from += chunkSize) {
+            int to = Math.min(actorCount, from + chunkSize);
+            List<Actor> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Actor actor = new Actor();
+                actor.setName("Seed Actor " + i);
+                actor.setBiography("Synthetic biography of actor " + i + ".");
+                actor.setPhotoUrl("/uploads/actors/seed-" + i + ".jpg");
+                actor.setBirthDate(LocalDate.of(1975 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+                actor.setNationality(pick(COUNTRIES, random));
+                chunk.add(actor);
+            }
+            transaction.executeWithoutResult(status ->
+                    actorRepository.saveAll(chunk).forEach(actor -> ids.add(actor.getId())));
+        }
+        return ids;
+    }
+
+    private List<Long> seedLacorns(TransactionTemplate transaction, Random random, List<Long> actorIds,
+                                   Map<Long, List<Long>> episodeIdsByLacorn) {
+        List<Long> ids = new ArrayList<>(lacornCount);
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < lacornCount; from += chunkSize) {
+            int to = Math.min(lacornCount, from + chunkSize);
+            int chunkFrom = from;
+            transaction.executeWithoutResult(status -> {
+                List<Lacorn> chunk = new ArrayList<>(to - chunkFrom);
+                for (int i = chunkFrom; i < to; i++) {
+                    chunk.add(newLacorn(i, random, actorIds, now));
+                }
+                for (Lacorn lacorn : lacornRepository.saveAll(chunk)) {
+                    ids.add(lacorn.getId());
+                    // IDENTITY: эпизоды уже вставлены каскадом, id известны без отдельного запроса
+                    episodeIdsByLacorn.put(lacorn.getId(), lacorn.getEpisodes().stream().map(Episode::getId).toList());
+                }
+            });
+        }
+        return ids;
+    }
+
+    private Lacorn newLacorn(int index, Random random, List<Long> actorIds, LocalDateTime now) {
+        Lacorn lacorn = new Lacorn();
+        lacorn.setTitle(pick(TITLE_WORDS, random) + " " + pick(TITLE_WORDS, random) + " " + index);
+        lacorn.setDescription("Synthetic lacorn " + index + ". " + "A story about love, family and destiny. ".repeat(4));
+        lacorn.setReleaseYear(1995 + random.nextInt(31));
+        lacorn.setTotalEpisodes(episodesPerLacorn);
+        lacorn.setEpisodeDuration(40 + random.nextInt(30));
+        lacorn.setPosterUrl("/uploads/posters/seed-" + index + ".jpg");
+        lacorn.setGenres(new ArrayList<>(distinct(GENRES, 1 + random.nextInt(3), random)));
+        lacorn.setProductionCountries(new ArrayList<>(List.of(pick(COUNTRIES, random))));
+        lacorn.setAgeRating(pick(AGE_RATINGS, random));
+        lacorn.setRating(Math.round((4.0 + random.nextDouble() * 6.0) * 10) / 10.0);
+        lacorn.setStatus(Lacorn.SeriesStatus.values()[random.nextInt(Lacorn.SeriesStatus.values().length)]);
+        lacorn.setCreatedAt(now.minusMinutes(random.nextInt(60 * 24 * 365)));
+        lacorn.setUpdatedAt(lacorn.getCreatedAt());
+
+        Set<Long> actors = new HashSet<>();
+        int actorsToAdd = Math.min(actorsPerLacorn, actorIds.size());
+        while (actors.size() < actorsToAdd) {
+            actors.add(actorIds.get(random.nextInt(actorIds.size())));
+        }
+        for (Long actorId : actors) {
+            lacorn.getActors().add(actorRepository.getReferenceById(actorId));
+        }
+
+        for (int number = 1; number <= episodesPerLacorn; number++) {
+            Episode episode = new Episode("Episode " + number, number, 1, "/videos/seed-" + index + "-" + number + ".mp4");
+            episode.setDescription("Episode " + number + " of " + lacorn.getTitle());
+            episode.setDuration(lacorn.getEpisodeDuration());
+            episode.setLacorn(lacorn);
+            lacorn.getEpisodes().add(episode);
+        }
+        return lacorn;
+    }
+
+    private void seedUsers(TransactionTemplate transaction, Random random, List<Long> lacornIds,
+                           Map<Long, List<Long>> episodeIdsByLacorn) {
+        // BCrypt дорогой: один хеш на всех пользователей засева
+        String encodedPassword = passwordEncoder.encode(password);
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < userCount; from += chunkSize) {
+            int to = Math.min(userCount, from + chunkSize);
+            int chunkFrom = from;
+            transaction.executeWithoutResult(status -> {
+                List<User> users = new ArrayList<>(to - chunkFrom);
+                for (int i = chunkFrom; i < to; i++) {
+                    users.add(newUser(i, encodedPassword, random, lacornIds));
+                }
+                userRepository.saveAll(users);
+
+                List<UserWatchHistory> histories = new ArrayList<>();
+                for (User user : users) {
+                    for (Long lacornId : distinct(lacornIds, Math.min(historiesPerUser, lacornIds.size()), random)) {
+                        histories.add(newWatchHistory(user, lacornId, episodeIdsByLacorn.get(lacornId), random, now));
+                    }
+                }
+                watchHistoryRepository.saveAll(histories);
+            });
+        }
+    }
+
+    private User newUser(int index, String encodedPassword, Random random, List<Long> lacornIds) {
+        User user = new User(username(index), username(index) + "@seed.local",
+                LocalDate.of(1970 + random.nextInt(35), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                encodedPassword);
+        user.setRole("USER");
+        for (String collectionName : UserService.DEFAULT_COLLECTIONS) {
+            SeriesCollection collection = new SeriesCollection(collectionName, user);
+            if (List.of(FILLED_COLLECTIONS).contains(collectionName)) {
+                for (Long lacornId : distinct(lacornIds, Math.min(lacornsPerCollection, lacornIds.size()), random)) {
+                    collection.addLacorn(lacornRepository.getReferenceById(lacornId));
+                }
+            }
+            user.getCollections().add(collection);
+        }
+        return user;
+    }
+
+    private UserWatchHistory newWatchHistory(User user, Long lacornId, List<Long> episodeIds,
+                                             Random random, LocalDateTime now) {
+        Episode episode = episodeIds.isEmpty()
+                ? null
+                : episodeRepository.getReferenceById(episodeIds.get(random.nextInt(episodeIds.size())));
+        UserWatchHistory history = new UserWatchHistory(user, lacornRepository.getReferenceById(lacornId), episode);
+        history.setCurrentTime(random.nextInt(3600));
+        history.setCompleted(random.nextInt(4) == 0);
+        history.setLastWatched(now.minusMinutes(random.nextInt(60 * 24 * 90)));
+        return history;
+    }
+
+    private String username(int index) {
+        return usernamePrefix + "_" + index;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static List<String> distinct(String[] values, int count, Random random) {
+        List<String> result = new ArrayList<>(count);
+        for (Integer index : distinctIndexes(values.length, count, random)) {
+            result.add(values[index]);
+        }
+        return result;
+    }
+
+    private static List<Long> distinct(List<Long> values, int count, Random random) {
+        List<Long> result = new ArrayList<>(count);
+        for (Integer index : distinctIndexes(values.size(), count, random)) {
+            result.add(values.get(index));
+        }
+        return result;
+    }
+
+    private static Set<Integer> distinctIndexes(int size, int count, Random random) {
+        Set<Integer> indexes = new LinkedHashSet<>();
+        while (indexes.size() < count) {
+            indexes.add(random.nextInt(size));
+        }
+        return indexes;
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.siamLacorns.config;
 
+import com.example.siamLacorns.service.UserDetailsImpl;
 import com.example.siamLacorns.service.UserDetailsServiceImpl;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,6 +26,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    /**
+     * true - id и роль берутся из подписанного токена, и запрос вообще не ходит в базу.
+     * Цена: смена роли или удаление пользователя вступают в силу только с истечением токена.
+     */
+    @Value("${jwt.trust-claims:false}")
+    private boolean trustClaims;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -40,7 +49,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         // ✅ Без токена — просто пропускаем дальше (гость)
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -56,13 +64,14 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         try {
-            // ✅ Извлекаем имя пользователя из токена
-            username = jwtUtil.extractUsername(jwt);
+            // ✅ Токен разбирается и проверяется один раз на запрос
+            VerifiedClaims verified = jwtUtil.parse(jwt);
+            String username = verified.username();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = resolveUser(verified);
 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (jwtUtil.validateToken(verified, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(
                                     userDetails, null, userDetails.getAuthorities());
@@ -78,6 +87,14 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolveUser(VerifiedClaims verified) {
+        // Токены, выпущенные до появления claim'ов, проверяются по-старому
+        if (trustClaims && verified.hasIdentity()) {
+            return UserDetailsImpl.fromClaims(verified.userId(), verified.username(), verified.role());
+        }
+        return userDetailsService.loadCachedUserByUsername(verified.username());
+    }
+
     private boolean isValidJwtFormat(String token) {
         if (token == null || token.trim().isEmpty()) {
             return false;
@@ -1,7 +1,11 @@
 package com.example.siamLacorns.config;
 
+import com.example.siamLacorns.service.UserDetailsImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +14,10 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +28,10 @@ public class JwtUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
 
+    // Claim'ы, по которым фильтр может обойтись без загрузки пользователя (jwt.trust-claims)
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+
     /**
      * Значения можно задать в application.properties:
      * jwt.secret=mySecretKeyForJWTGenerationThatIsAtLeast32BytesLong!
@@ -31,59 +43,105 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400}") // по умолчанию 24 часа
     private Long expiration;
 
-    // ✅ Правильный метод получения ключа
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.verified-cache.maximum-size:10000}")
+    private long verifiedCacheMaximumSize;
+
+    @Value("${jwt.verified-cache.ttl:5m}")
+    private Duration verifiedCacheTtl;
+
+    // Ключ и парсер неизменяемы и потокобезопасны - строятся один раз при старте
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Недавно проверенные токены: SHA-256 токена -> claims. Сами токены в памяти не хранятся
+    private Cache<String, VerifiedClaims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaximumSize)
+                .expireAfterWrite(verifiedCacheTtl)
+                .build();
     }
 
-    // ====== Извлечение данных из токена ======
+    // ====== Разбор токена ======
+
+    /**
+     * Единственная точка проверки токена: подпись и срок проверяются один раз,
+     * повторный запрос с тем же токеном берёт результат из кэша (с повторной проверкой срока).
+     *
+     * @throws JwtException если подпись неверна, токен испорчен или истёк
+     */
+    public VerifiedClaims parse(String token) {
+        String key = hash(token);
+        VerifiedClaims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            verifiedTokens.invalidate(key);
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException e) {
+            logger.error("JWT parse error: {}", e.getMessage());
+            throw e;
+        }
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        VerifiedClaims verified = new VerifiedClaims(claims.getSubject(),
+                userId != null ? userId.longValue() : null,
+                claims.get(CLAIM_ROLE, String.class),
+                claims.getExpiration(),
+                claims);
+        verifiedTokens.put(key, verified);
+        return verified;
+    }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return parse(token).username();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return parse(token).expiration();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(parse(token).claims());
     }
 
-    private Claims extractAllClaims(String token) {
+    private static String hash(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (JwtException e) {
-            logger.error("JWT parse error: {}", e.getMessage());
-            throw e;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     // ====== Генерация токена ======
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof UserDetailsImpl details) {
+            claims.put(CLAIM_USER_ID, details.getId());
+            claims.put(CLAIM_ROLE, details.getRole());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
-        SecretKey key = getSigningKey();
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration * 1000))
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -91,15 +149,22 @@ public class JwtUtil {
 
     public Boolean validateToken(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            boolean valid = (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+            return validateToken(parse(token), userDetails);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.error("JWT validation error: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Проверка уже разобранного токена - без повторного разбора
+    public boolean validateToken(VerifiedClaims verified, UserDetails userDetails) {
+        try {
+            final String username = verified.username();
+            boolean valid = (username.equals(userDetails.getUsername()) && !verified.isExpired());
             if (!valid) {
                 logger.warn("Invalid JWT for user: {}", username);
             }
             return valid;
-        } catch (JwtException e) {
-            logger.error("JWT validation error: {}", e.getMessage());
-            return false;
         } catch (Exception e) {
             logger.error("Unexpected error during JWT validation: {}", e.getMessage());
             return false;
@@ -0,0 +1,19 @@
+package com.example.siamLacorns.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Остальное (пул HikariCP, Spring Data репозитории, статистика Hibernate, @Timed, RestTemplate TMDB)
+ * подключает Spring Boot Actuator автоматически; здесь - только счётчик SQL на запрос.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+}
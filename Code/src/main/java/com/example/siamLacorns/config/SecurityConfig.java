@@ -71,6 +71,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/users/avatar").authenticated()
                         .requestMatchers("/api/users/{id}").authenticated()
                         .requestMatchers("/api/lacorns/**").permitAll()
+                        // Проверка живости без токена; метрики (в т.ч. /actuator/prometheus) раскрывают трафик
+                        // и внутренности пулов, поэтому скрейпер ходит с токеном админа, как и весь actuator
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().permitAll()
                 )
                 .sessionManagement(session -> session
@@ -0,0 +1,24 @@
+package com.example.siamLacorns.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-операторы, которые Hibernate готовит в текущем потоке.
+ * Счётчик монотонный: стоимость участка кода - разность current() до и после,
+ * поэтому замеры можно вкладывать (фильтр запроса внутри assertMaxQueries в тестах).
+ * Запросы через JdbcTemplate мимо Hibernate сюда не попадают.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNTER = ThreadLocal.withInitial(() -> new long[1]);
+
+    public static long current() {
+        return COUNTER.get()[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNTER.get()[0]++;
+        return sql;
+    }
+}
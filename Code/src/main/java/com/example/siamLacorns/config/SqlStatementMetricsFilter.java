@@ -0,0 +1,81 @@
+package com.example.siamLacorns.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Гистограмма «SQL-операторов на запрос» по эндпоинтам: http.server.requests.sql.statements{method, uri}.
+ * N+1 на каком-либо эндпоинте виден как рост его распределения.
+ * Стоит раньше фильтров безопасности, поэтому учитывает и загрузку пользователя по JWT.
+ * Запросы сверх sql.statement-budget.max-per-request пишутся в лог и в счётчик
+ * http.server.requests.sql.budget.exceeded; в тестах тот же счётчик проверяет assertMaxQueries.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementMetricsFilter.class);
+
+    static final String METRIC_NAME = "http.server.requests.sql.statements";
+    static final String BUDGET_EXCEEDED_METRIC_NAME = "http.server.requests.sql.budget.exceeded";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 0 - бюджет не проверяется
+    @Value("${sql.statement-budget.max-per-request:30}")
+    private int maxStatementsPerRequest;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long before = SqlStatementCounter.current();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long statements = SqlStatementCounter.current() - before;
+            String uri = uriTemplate(request);
+            DistributionSummary.builder(METRIC_NAME)
+                    .description("SQL statements issued by Hibernate while serving a request")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100)
+                    .register(meterRegistry)
+                    .record(statements);
+
+            if (maxStatementsPerRequest > 0 && statements > maxStatementsPerRequest) {
+                logger.warn("SQL statement budget exceeded: {} {} issued {} statements (budget {}), request {}",
+                        request.getMethod(), uri, statements, maxStatementsPerRequest, request.getRequestURI());
+                Counter.builder(BUDGET_EXCEEDED_METRIC_NAME)
+                        .description("Requests that issued more SQL statements than the configured budget")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri)
+                        .register(meterRegistry)
+                        .increment();
+            }
+        }
+    }
+
+    // Шаблон пути контроллера (/api/lacorns/{id}), чтобы не плодить метрики на каждый id
+    private static String uriTemplate(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
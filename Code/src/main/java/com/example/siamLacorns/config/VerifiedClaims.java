@@ -0,0 +1,20 @@
+package com.example.siamLacorns.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Результат проверки подписи и срока JWT. userId и role есть только у токенов,
+ * выпущенных вместе с claim'ами uid/role, у старых токенов они null.
+ */
+public record VerifiedClaims(String username, Long userId, String role, Date expiration, Claims claims) {
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    public boolean hasIdentity() {
+        return userId != null && role != null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.siamLacorns.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Перед тем как Hibernate (ddl-auto=update) добавит уникальный ключ (user_id, lacorn_id)
+ * в user_watch_history, из таблицы удаляются дубликаты, накопленные старым
+ * read-then-insert кодом. Иначе ALTER TABLE упадёт и ограничение так и не появится.
+ */
+@Configuration
+public class WatchHistoryMigrationConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchHistoryMigrationConfig.class);
+
+    // Оставляем по одной записи на пару: самую свежую, при равенстве - с большим id
+    private static final String DELETE_DUPLICATES_SQL =
+            "DELETE FROM user_watch_history wh USING user_watch_history newer " +
+            "WHERE wh.user_id = newer.user_id AND wh.lacorn_id = newer.lacorn_id " +
+            "AND (COALESCE(newer.last_watched, '-infinity'::timestamp), newer.id) " +
+            "  > (COALESCE(wh.last_watched, '-infinity'::timestamp), wh.id)";
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor watchHistoryDeduplicationDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor("watchHistoryDeduplication");
+    }
+
+    @Bean
+    public WatchHistoryDeduplication watchHistoryDeduplication(DataSource dataSource) {
+        WatchHistoryDeduplication deduplication = new WatchHistoryDeduplication();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (!"PostgreSQL".equals(metaData.getDatabaseProductName()) || !tableExists(metaData)) {
+                return deduplication;
+            }
+        } catch (SQLException e) {
+            logger.warn("Skipping user_watch_history deduplication: {}", e.getMessage());
+            return deduplication;
+        }
+
+        int removed = new JdbcTemplate(dataSource).update(DELETE_DUPLICATES_SQL);
+        if (removed > 0) {
+            logger.info("Removed {} duplicate user_watch_history rows", removed);
+        }
+        deduplication.removed = removed;
+        return deduplication;
+    }
+
+    private static boolean tableExists(DatabaseMetaData metaData) throws SQLException {
+        try (ResultSet tables = metaData.getTables(null, null, "user_watch_history", new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    // Маркер выполненной миграции, от него зависит EntityManagerFactory
+    public static class WatchHistoryDeduplication {
+        private int removed;
+
+        public int getRemoved() {
+            return removed;
+        }
+    }
+}
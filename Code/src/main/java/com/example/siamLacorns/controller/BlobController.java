@@ -0,0 +1,42 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.model.StoredBlob;
+import com.example.siamLacorns.service.BlobStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/api/blobs")
+public class BlobController {
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    // Содержимое по хешу не меняется никогда: ETag - сам хеш, кэшировать можно бессрочно
+    @GetMapping("/{hash}")
+    public ResponseEntity<Resource> getBlob(@PathVariable String hash, WebRequest request) {
+        StoredBlob blob = blobStorageService.find(hash);
+        String etag = "\"" + hash + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        MediaType contentType = blob.getContentType() != null
+                ? MediaType.parseMediaType(blob.getContentType())
+                : MediaType.APPLICATION_OCTET_STREAM;
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(contentType)
+                .body(new FileSystemResource(blobStorageService.path(hash)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.service.HlsService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/api/lacorns/episodes/{episodeId}/hls")
+public class HlsController {
+
+    @Autowired
+    private HlsService hlsService;
+
+    // Мастер-плейлист: ступени видео + озвучки и субтитры; voiceover - озвучка по умолчанию
+    @GetMapping("/master.m3u8")
+    public ResponseEntity<String> getMasterPlaylist(@PathVariable Long episodeId,
+                                                    @RequestParam(required = false) String voiceover) {
+        return playlist(hlsService.masterPlaylist(episodeId,
+                voiceover != null ? HlsService.parseVoiceover(voiceover) : null));
+    }
+
+    @GetMapping("/tracks/{trackId}/index.m3u8")
+    public ResponseEntity<String> getMediaPlaylist(@PathVariable Long episodeId, @PathVariable Long trackId) {
+        return playlist(hlsService.mediaPlaylist(episodeId, trackId));
+    }
+
+    // Сегмент вида 12.ts; сегменты неизменяемы, поэтому кэшируются клиентом и CDN надолго
+    @GetMapping("/tracks/{trackId}/{segment:\\d+\\.\\w+}")
+    public void getSegment(@PathVariable Long episodeId,
+                           @PathVariable Long trackId,
+                           @PathVariable String segment,
+                           HttpServletResponse response) throws IOException {
+        int sequence;
+        try {
+            sequence = Integer.parseInt(segment.substring(0, segment.indexOf('.')));
+        } catch (NumberFormatException e) {
+            throw new ResourceNotFoundException("Сегмент не найден");
+        }
+        HlsService.SegmentData data = hlsService.segment(episodeId, trackId, sequence);
+        ByteBuffer bytes = data.bytes();
+
+        response.setContentType(data.contentType().toString());
+        response.setContentLength(bytes.remaining());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic().getHeaderValue());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static ResponseEntity<String> playlist(String body) {
+        return ResponseEntity.ok()
+                .contentType(HlsService.PLAYLIST_TYPE)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.MINUTES).cachePublic())
+                .body(body);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.service.ImageMirrorService;
+import com.example.siamLacorns.service.ImageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/img")
+public class ImageController {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageMirrorService imageMirrorService;
+
+    /**
+     * Уменьшенная копия картинки из хранилища блобов: /img/{hash}?w=342&fmt=webp.
+     * Без fmt формат выбирается по Accept (AVIF, WebP, если есть чем их писать), поэтому ответ варьируется по Accept.
+     */
+    @GetMapping("/{key}")
+    public ResponseEntity<Resource> getImage(@PathVariable String key,
+                                             @RequestParam(required = false) Integer w,
+                                             @RequestParam(required = false) String fmt,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                             WebRequest request) {
+        ImageService.Format format = fmt != null ? ImageService.Format.parse(fmt) : negotiate(accept);
+        ImageService.Derivative derivative = imageService.derivative(key, w, format);
+
+        boolean notModified = request.checkNotModified(derivative.etag());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(derivative.etag());
+        if (fmt == null) {
+            response.varyBy(HttpHeaders.ACCEPT);
+        }
+        if (notModified) {
+            return response.build();
+        }
+        return response
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(derivative.contentType())
+                .contentLength(derivative.size())
+                .body(new FileSystemResource(derivative.path()));
+    }
+
+    // Заполненность дискового кэша производных и доступные форматы
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getImageCacheStats() {
+        return imageService.stats();
+    }
+
+    // Перенос картинок TMDB в локальное хранилище: очередь, успехи, повторы, отказы
+    @GetMapping("/mirror/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getImageMirrorStats() {
+        return imageMirrorService.stats();
+    }
+
+    // Не ждать планового прохода: поставить в очередь всё, что ещё лежит на CDN TMDB
+    @PostMapping("/mirror/sweep")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> sweepImageMirror() {
+        imageMirrorService.sweep();
+        return imageMirrorService.stats();
+    }
+
+    private static ImageService.Format negotiate(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        for (ImageService.Format format : List.of(ImageService.Format.AVIF, ImageService.Format.WEBP)) {
+            if (format.isWritable() && accepted.stream().anyMatch(type -> type.equalsTypeAndSubtype(format.getMediaType()))) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.dto.IngestJobDTO;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.service.HlsService;
+import com.example.siamLacorns.service.IngestService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Загрузка видео эпизода с продолжением:
+ * POST .../uploads?size=N[&sha256=...] создаёт задание (если файл с таким хешем уже есть в хранилище,
+ * передавать его не нужно), PUT .../uploads/{jobId} с Content-Range: bytes a-b/N
+ * дописывает фрагмент, GET .../uploads/{jobId} возвращает receivedBytes - с него продолжается
+ * оборванная загрузка. После последнего фрагмента задание уходит в очередь обработки.
+ */
+@CrossOrigin
+@RestController
+@RequestMapping("/api/lacorns/episodes/{episodeId}")
+public class IngestController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    @Autowired
+    private IngestService ingestService;
+
+    @PostMapping("/uploads")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<IngestJobDTO> createUpload(@PathVariable Long episodeId,
+                                                     @RequestParam long size,
+                                                     @RequestParam(required = false) String voiceover,
+                                                     @RequestParam(required = false) String fileName,
+                                                     @RequestParam(required = false) String sha256) {
+        IngestJobDTO job = ingestService.createUpload(episodeId, size,
+                voiceover != null ? HlsService.parseVoiceover(voiceover) : null, fileName, sha256);
+        return ResponseEntity.status(HttpStatus.CREATED).body(job);
+    }
+
+    // Тело читается потоком прямо в файл, поэтому без @RequestBody
+    @PutMapping("/uploads/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public IngestJobDTO uploadChunk(@PathVariable Long episodeId,
+                                    @PathVariable Long jobId,
+                                    @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+                                    HttpServletRequest request) throws IOException {
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches()) {
+            throw new ValidationException("Ожидался заголовок Content-Range: bytes start-end/total");
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = Long.parseLong(matcher.group(2));
+        long total = Long.parseLong(matcher.group(3));
+        if (end < start) {
+            throw new ValidationException("Некорректный диапазон фрагмента");
+        }
+        return ingestService.appendChunk(episodeId, jobId, start, end - start + 1, total, request.getInputStream());
+    }
+
+    @GetMapping("/uploads/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public IngestJobDTO getUpload(@PathVariable Long episodeId, @PathVariable Long jobId) {
+        return ingestService.getJob(episodeId, jobId);
+    }
+
+    // Все задания эпизода, последние первыми: статус и процент обработки
+    @GetMapping("/ingest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<IngestJobDTO> getIngestJobs(@PathVariable Long episodeId) {
+        return ingestService.getJobs(episodeId);
+    }
+}
@@ -4,6 +4,7 @@ import com.example.siamLacorns.dto.*;
 import com.example.siamLacorns.model.Actor;
 import com.example.siamLacorns.model.Episode;
 import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.search.FacetFilter;
 import com.example.siamLacorns.service.LacornService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -17,6 +18,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @CrossOrigin
@@ -51,6 +53,13 @@ public class LacornController {
         return ResponseEntity.ok(lacorn);
     }
 
+    // Статистика кэша карточек лакорнов (попадания, промахи, вытеснения)
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getLacornCacheStats() {
+        return lacornService.getLacornCacheStats();
+    }
+
     // Получение всех сериалов
     @GetMapping
     public Page<LacornDTO> getAllLacorns(
@@ -59,6 +68,12 @@ public class LacornController {
         return lacornService.getAllLacorns(pageable, userId);
     }
 
+    // Лёгкий режим каталога для карточек: /api/lacorns?view=card
+    @GetMapping(params = "view=card")
+    public Page<LacornCardDTO> getLacornCards(Pageable pageable) {
+        return lacornService.getLacornCards(pageable);
+    }
+
     @GetMapping("/actor/{actorId}")
     public ResponseEntity<List<LacornDTO>> getLacornsByActorId(@PathVariable Long actorId) {
         List<LacornDTO> lacorns = lacornService.getLacornsByActorId(actorId);
@@ -74,6 +89,43 @@ public class LacornController {
         return lacornService.searchLacorns(query, pageable, userId);
     }
 
+    // Подсказки для поиска по мере ввода
+    @GetMapping("/suggest")
+    public List<SuggestionDTO> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return lacornService.suggest(query, limit);
+    }
+
+    // Фильтр по жанрам (все), странам, статусам, возрастным рейтингам (любой) и диапазону лет со счётчиками фасетов
+    @GetMapping("/filter")
+    public FacetedPageDTO<LacornDTO> filterLacorns(
+            @RequestParam(value = "genre", required = false) List<String> genres,
+            @RequestParam(value = "country", required = false) List<String> countries,
+            @RequestParam(value = "status", required = false) List<String> statuses,
+            @RequestParam(value = "ageRating", required = false) List<String> ageRatings,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        FacetFilter filter = new FacetFilter(genres, countries, statuses, ageRatings, yearFrom, yearTo);
+        return lacornService.filterLacorns(filter, page, size, userId);
+    }
+
+    // Счётчики фасетов (жанры, страны, годы, статус, возрастной рейтинг) под текущим фильтром, без выдачи
+    @GetMapping("/facets")
+    public Map<String, Map<String, Integer>> getFacets(
+            @RequestParam(value = "genre", required = false) List<String> genres,
+            @RequestParam(value = "country", required = false) List<String> countries,
+            @RequestParam(value = "status", required = false) List<String> statuses,
+            @RequestParam(value = "ageRating", required = false) List<String> ageRatings,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo) {
+        FacetFilter filter = new FacetFilter(genres, countries, statuses, ageRatings, yearFrom, yearTo);
+        return lacornService.getFacets(filter);
+    }
+
     // Получение сериалов по жанру
     @GetMapping("/genre/{genre}")
     public List<LacornDTO> getLacornsByGenre(
@@ -216,6 +268,29 @@ public class LacornController {
         return lacornService.getTopRatedLacorns(limit, userId);
     }
 
+    @GetMapping(value = "/top-rated", params = "view=card")
+    public List<LacornCardDTO> getTopRatedLacornCards(@RequestParam(defaultValue = "10") int limit) {
+        return lacornService.getTopRatedLacornCards(limit);
+    }
+
+    // Лента по рейтингу с курсором для бесконечной прокрутки
+    @GetMapping("/feed/rating")
+    public FeedPageDTO<LacornDTO> getRatingFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        return lacornService.getRatingFeed(cursor, size, userId);
+    }
+
+    // Лента новинок с курсором
+    @GetMapping("/feed/latest")
+    public FeedPageDTO<LacornDTO> getLatestFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        return lacornService.getLatestFeed(cursor, size, userId);
+    }
+
     // Поиск с сортировкой по рейтингу
     @GetMapping("/search/sorted/rating")
     public Page<LacornDTO> searchLacornsSortedByRating(
@@ -4,8 +4,12 @@ import com.example.siamLacorns.repository.UserRepository;
 import com.example.siamLacorns.dto.CollectionDTO;
 import com.example.siamLacorns.dto.RegisterRequestDTO;
 import com.example.siamLacorns.dto.UserDTO;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.StoredBlob;
 import com.example.siamLacorns.model.User;
+import com.example.siamLacorns.service.BlobStorageService;
 import com.example.siamLacorns.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +19,10 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +38,8 @@ public class UserController {
     private UserService userService;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private BlobStorageService blobStorageService;
 
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUserProfile(Authentication authentication) {
@@ -138,30 +147,24 @@ public class UserController {
                 return ResponseEntity.badRequest().body("Файл не выбран");
             }
 
-            String username = authentication.getName();
-
-            // 📁 Папка для сохранения аватаров (для runtime)
-            String uploadDir = "target/classes/static/uploads/avatars";
-            java.nio.file.Path uploadPath = java.nio.file.Paths.get(uploadDir).toAbsolutePath();
-
-            if (!java.nio.file.Files.exists(uploadPath)) {
-                java.nio.file.Files.createDirectories(uploadPath);
-            }
-
-            // 🧾 Создаём уникальное имя файла
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename.substring(originalFilename.lastIndexOf('.'));
-            String newFileName = username + "_" + System.currentTimeMillis() + fileExtension;
-
-            java.nio.file.Path filePath = uploadPath.resolve(newFileName);
-            file.transferTo(filePath.toFile());
-
-            // 🔗 Формируем полный URL для фронтенда
-            String avatarUrl = "http://localhost:8081/uploads/avatars/" + newFileName;
-            logger.debug("Avatar saved at: {}, URL: {}", filePath, avatarUrl);
-            userService.updateAvatar(username, avatarUrl);
+            return saveAvatar(file.getInputStream(), file.getContentType(), authentication.getName());
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error uploading avatar: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Ошибка при загрузке аватара: " + e.getMessage());
+        }
+    }
 
-            return ResponseEntity.ok(Map.of("message", "Аватар успешно загружен", "avatarUrl", avatarUrl));
+    // Картинка телом запроса (Content-Type: image/...): читается потоком, без multipart и его лимита
+    @PutMapping("/avatar")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> putAvatar(HttpServletRequest request, Authentication authentication) {
+        try {
+            return saveAvatar(request.getInputStream(), request.getContentType(), authentication.getName());
+        } catch (ValidationException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error uploading avatar: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -169,6 +172,22 @@ public class UserController {
         }
     }
 
+    // Одинаковые картинки хранятся один раз; ссылка на прежний аватар освобождается в updateAvatar
+    private ResponseEntity<?> saveAvatar(InputStream content, String contentType, String username) throws IOException {
+        StoredBlob blob = userService.storeAvatar(content, contentType);
+        String avatarUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path(BlobStorageService.url(blob.getHash()))
+                .toUriString();
+        try {
+            userService.updateAvatar(username, avatarUrl);
+        } catch (RuntimeException e) {
+            blobStorageService.release(blob.getHash());
+            throw e;
+        }
+        logger.debug("Avatar stored as blob {}, URL: {}", blob.getHash(), avatarUrl);
+        return ResponseEntity.ok(Map.of("message", "Аватар успешно загружен", "avatarUrl", avatarUrl));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("isAuthenticated() ")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
@@ -198,8 +217,8 @@ public class UserController {
 
     @GetMapping("/{userId}/collections")
     @PreAuthorize("isAuthenticated() ")
-    public ResponseEntity<List<CollectionDTO>> getUserCollections(@PathVariable Long id) {
-        UserDTO user = userService.getUserById(id);
+    public ResponseEntity<List<CollectionDTO>> getUserCollections(@PathVariable Long userId) {
+        UserDTO user = userService.getUserById(userId);
         return ResponseEntity.ok(user.getCollections());
     }
 }
\ No newline at end of file
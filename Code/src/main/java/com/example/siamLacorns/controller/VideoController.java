@@ -1,18 +1,54 @@
 package com.example.siamLacorns.controller;
 
+import com.example.siamLacorns.service.EpisodeMediaService;
 import com.example.siamLacorns.service.LacornService;
+import com.example.siamLacorns.service.SegmentCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @CrossOrigin
 @RestController
 @RequestMapping("/api/lacorns/episodes")
 public class VideoController {
 
+    private static final Logger logger = LoggerFactory.getLogger(VideoController.class);
+
+    // Атрибуты Tomcat для отдачи файла через sendfile (FileChannel.transferTo прямо в сокет)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private LacornService lacornService;
 
+    @Autowired
+    private EpisodeMediaService episodeMediaService;
+
+    @Autowired
+    private SegmentCache segmentCache;
+
     @GetMapping("/{episodeId}/video")
     public ResponseEntity<String> getVideoUrl(
             @PathVariable Long episodeId,
@@ -26,4 +62,166 @@ public class VideoController {
             return ResponseEntity.ok(fallbackUrl);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Видео эпизода с поддержкой Range (206, multipart/byteranges), ETag/Last-Modified и If-Range.
+     * Файл не читается с начала и не попадает в heap: один диапазон отдаётся через sendfile Tomcat,
+     * остальное - FileChannel.transferTo с нужной позиции.
+     */
+    @GetMapping("/{episodeId}/stream")
+    public void streamEpisode(@PathVariable Long episodeId,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        EpisodeMediaService.EpisodeMedia media = episodeMediaService.resolve(episodeId);
+
+        // If-None-Match / If-Modified-Since: 304 без тела
+        if (new ServletWebRequest(request, response).checkNotModified(media.getETag(), media.getLastModified())) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, media.getETag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, media.getLastModified());
+
+        List<ByteRange> ranges;
+        try {
+            ranges = requestedRanges(request, media);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + media.getLength());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        try {
+            if (ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                writeSingle(request, response, media, new ByteRange(0, media.getLength() - 1), head);
+            } else if (ranges.size() == 1) {
+                ByteRange range = ranges.get(0);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(media.getLength()));
+                writeSingle(request, response, media, range, head);
+            } else {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                writeMultipart(response, media, ranges, head);
+            }
+        } catch (IOException e) {
+            // Плеер при перемотке обрывает соединение - это штатная ситуация
+            logger.debug("Streaming of episode {} aborted: {}", episodeId, e.getMessage());
+        }
+    }
+
+    // Заполненность кэша HLS-сегментов
+    @GetMapping("/hls/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getSegmentCacheStats() {
+        return segmentCache.stats();
+    }
+
+    // Пустой список - отдать файл целиком
+    private List<ByteRange> requestedRanges(HttpServletRequest request, EpisodeMediaService.EpisodeMedia media) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || media.getLength() == 0 || !ifRangeMatches(request, media)) {
+            return List.of();
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        long total = 0;
+        for (HttpRange range : HttpRange.parseRanges(rangeHeader)) {
+            long start = range.getRangeStart(media.getLength());
+            long end = range.getRangeEnd(media.getLength());
+            // HttpRange не сверяет начало с длиной: bytes=5000- для файла в 1000 байт - это 416, а не 206
+            if (start >= media.getLength() || end < start) {
+                throw new IllegalArgumentException("Range " + range + " is outside of the content length");
+            }
+            ByteRange byteRange = new ByteRange(start, end);
+            total += byteRange.length();
+            ranges.add(byteRange);
+        }
+        // Пересекающиеся диапазоны, в сумме больше файла, - способ раздуть ответ, а не перемотка
+        if (total > media.getLength()) {
+            throw new IllegalArgumentException("Requested ranges exceed the content length");
+        }
+        return ranges;
+    }
+
+    // If-Range: диапазон отдаётся, только если у клиента та же версия файла, иначе - весь файл
+    private static boolean ifRangeMatches(HttpServletRequest request, EpisodeMediaService.EpisodeMedia media) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(media.getETag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == media.getLastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeSingle(HttpServletRequest request, HttpServletResponse response,
+                             EpisodeMediaService.EpisodeMedia media, ByteRange range, boolean head) throws IOException {
+        response.setContentType(media.getContentType().toString());
+        response.setContentLengthLong(range.length());
+        if (head || range.length() == 0) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, media.getPath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(media.getPath(), StandardOpenOption.READ)) {
+            transfer(file, range, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private void writeMultipart(HttpServletResponse response, EpisodeMediaService.EpisodeMedia media,
+                                List<ByteRange> ranges, boolean head) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        try (FileChannel file = FileChannel.open(media.getPath(), StandardOpenOption.READ)) {
+            for (ByteRange range : ranges) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + media.getContentType() + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(media.getLength()) + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                transfer(file, range, channel);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static void transfer(FileChannel file, ByteRange range, WritableByteChannel target) throws IOException {
+        long position = range.start();
+        long remaining = range.length();
+        while (remaining > 0) {
+            long written = file.transferTo(position, remaining, target);
+            if (written <= 0) {
+                // Файл укоротили во время отдачи
+                throw new IOException("Unexpected end of file at " + position);
+            }
+            position += written;
+            remaining -= written;
+        }
+    }
+
+    // Включительные границы, как в заголовке Range
+    private record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long totalLength) {
+            return "bytes " + start + "-" + end + "/" + totalLength;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.siamLacorns.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+// Страница отфильтрованного каталога вместе со счётчиками по фасетам
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedPageDTO<T> {
+    private List<T> content;
+    private long totalElements;
+    private int page;
+    private int size;
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,19 @@
+package com.example.siamLacorns.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+// Страница бесконечной ленты: элементы и непрозрачный курсор на продолжение
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedPageDTO<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,63 @@
+package com.example.siamLacorns.dto;
+
+import com.example.siamLacorns.model.IngestJob;
+
+import java.time.LocalDateTime;
+
+public class IngestJobDTO {
+    private Long id;
+    private Long episodeId;
+    private String status;
+    private String voiceover;
+    private String fileName;
+    private String sourceHash;
+    private Long totalBytes;
+    private Long receivedBytes; // с этой позиции клиент продолжает загрузку
+    private Integer progress;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public IngestJobDTO() {}
+
+    public IngestJobDTO(IngestJob job) {
+        this.id = job.getId();
+        this.episodeId = job.getEpisode().getId();
+        this.status = job.getStatus().name();
+        this.voiceover = job.getVoiceover() != null ? job.getVoiceover().name() : null;
+        this.fileName = job.getFileName();
+        this.sourceHash = job.getSourceHash();
+        this.totalBytes = job.getTotalBytes();
+        this.receivedBytes = job.getReceivedBytes();
+        this.progress = job.getProgress();
+        this.message = job.getMessage();
+        this.createdAt = job.getCreatedAt();
+        this.updatedAt = job.getUpdatedAt();
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getEpisodeId() { return episodeId; }
+    public void setEpisodeId(Long episodeId) { this.episodeId = episodeId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getVoiceover() { return voiceover; }
+    public void setVoiceover(String voiceover) { this.voiceover = voiceover; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getSourceHash() { return sourceHash; }
+    public void setSourceHash(String sourceHash) { this.sourceHash = sourceHash; }
+    public Long getTotalBytes() { return totalBytes; }
+    public void setTotalBytes(Long totalBytes) { this.totalBytes = totalBytes; }
+    public Long getReceivedBytes() { return receivedBytes; }
+    public void setReceivedBytes(Long receivedBytes) { this.receivedBytes = receivedBytes; }
+    public Integer getProgress() { return progress; }
+    public void setProgress(Integer progress) { this.progress = progress; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,32 @@
+package com.example.siamLacorns.dto;
+
+import com.example.siamLacorns.repository.LacornSummary;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+// Карточка лакорна для списков каталога (view=card)
+@Setter
+@Getter
+@NoArgsConstructor
+public class LacornCardDTO {
+    private Long id;
+    private String title;
+    private String posterUrl;
+    private Double rating;
+    private Integer releaseYear;
+    private String status;
+    private List<String> genres;
+
+    public LacornCardDTO(LacornSummary summary, List<String> genres) {
+        this.id = summary.getId();
+        this.title = summary.getTitle();
+        this.posterUrl = summary.getPosterUrl();
+        this.rating = summary.getRating();
+        this.releaseYear = summary.getReleaseYear();
+        this.status = summary.getStatus() != null ? summary.getStatus().name() : "ONGOING";
+        this.genres = genres;
+    }
+}
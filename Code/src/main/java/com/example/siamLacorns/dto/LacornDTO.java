@@ -12,7 +12,7 @@ import lombok.Setter;
 import java.util.List;
 import java.util.stream.Collectors;
 
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 public class LacornDTO {
     // Конструкторы, геттеры и сеттеры
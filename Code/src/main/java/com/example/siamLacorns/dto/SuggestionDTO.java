@@ -0,0 +1,19 @@
+package com.example.siamLacorns.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Подсказка для поиска по мере ввода: лакорн или актёр
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+    private String type; // "lacorn" или "actor"
+    private Long id;
+    private String text;
+    private Double rating;
+    private String imageUrl;
+}
@@ -0,0 +1,14 @@
+package com.example.siamLacorns.event;
+
+/**
+ * Канал рассылки инвалидаций между узлами приложения.
+ * Реализация доставляет чужие сообщения как событие InvalidationMessage в контекст Spring;
+ * собственные сообщения узла отбрасываются.
+ */
+public interface InvalidationBus {
+
+    void publish(InvalidationMessage message);
+
+    // Идентификатор текущего узла, подставляется в origin сообщений
+    String nodeId();
+}
@@ -0,0 +1,20 @@
+package com.example.siamLacorns.event;
+
+/**
+ * Сообщение шины инвалидации между узлами.
+ * origin - идентификатор узла-отправителя, entity - LACORN или USER,
+ * key - дополнительный ключ кэша (имя пользователя), может быть null.
+ */
+public record InvalidationMessage(String origin, String entity, String type, Long id, String key) {
+
+    public static final String LACORN = "LACORN";
+    public static final String USER = "USER";
+
+    public static InvalidationMessage of(String origin, LacornChangedEvent event) {
+        return new InvalidationMessage(origin, LACORN, event.getType().name(), event.getLacornId(), null);
+    }
+
+    public static InvalidationMessage of(String origin, UserChangedEvent event) {
+        return new InvalidationMessage(origin, USER, event.getType().name(), event.getUserId(), event.getUsername());
+    }
+}
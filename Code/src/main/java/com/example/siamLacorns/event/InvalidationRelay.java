@@ -0,0 +1,49 @@
+package com.example.siamLacorns.event;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Связывает локальные события изменений с шиной инвалидации.
+ * Локальные изменения после коммита уходят в шину; сообщения других узлов
+ * публикуются здесь как те же события с remote = true, и их применяют обычные слушатели.
+ */
+@Component
+public class InvalidationRelay {
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        if (!event.isRemote()) {
+            invalidationBus.publish(InvalidationMessage.of(invalidationBus.nodeId(), event));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.isRemote()) {
+            invalidationBus.publish(InvalidationMessage.of(invalidationBus.nodeId(), event));
+        }
+    }
+
+    @EventListener
+    public void onRemoteMessage(InvalidationMessage message) {
+        switch (message.entity()) {
+            case InvalidationMessage.LACORN -> eventPublisher.publishEvent(new LacornChangedEvent(
+                    message.id(), LacornChangedEvent.Type.valueOf(message.type()), true));
+            case InvalidationMessage.USER -> eventPublisher.publishEvent(new UserChangedEvent(
+                    message.id(), message.key(), UserChangedEvent.Type.valueOf(message.type()), true));
+            default -> {
+                // Сообщение от более новой версии приложения - пропускаем
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.siamLacorns.event;
+
+// Шина инвалидации переподключилась: часть сообщений могла быть пропущена, кэши лучше сбросить целиком
+public class InvalidationResyncEvent {
+}
@@ -0,0 +1,45 @@
+package com.example.siamLacorns.event;
+
+// Событие изменения лакорна: по нему обновляются поисковый индекс и прочие производные структуры.
+// remote = true - изменение пришло с другого узла через InvalidationBus и дальше не рассылается
+public class LacornChangedEvent {
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+
+    private final Long lacornId;
+    private final Type type;
+    private final boolean remote;
+
+    public LacornChangedEvent(Long lacornId, Type type) {
+        this(lacornId, type, false);
+    }
+
+    public LacornChangedEvent(Long lacornId, Type type, boolean remote) {
+        this.lacornId = lacornId;
+        this.type = type;
+        this.remote = remote;
+    }
+
+    public static LacornChangedEvent upsert(Long lacornId) {
+        return new LacornChangedEvent(lacornId, Type.UPSERT);
+    }
+
+    public static LacornChangedEvent delete(Long lacornId) {
+        return new LacornChangedEvent(lacornId, Type.DELETE);
+    }
+
+    public Long getLacornId() { return lacornId; }
+
+    public Type getType() { return type; }
+
+    public boolean isDelete() { return type == Type.DELETE; }
+
+    public boolean isRemote() { return remote; }
+
+    @Override
+    public String toString() {
+        return "LacornChangedEvent{lacornId=" + lacornId + ", type=" + type + ", remote=" + remote + '}';
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.siamLacorns.event;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Один узел: рассылать некому, локальные кэши сбрасываются обычными событиями
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.mode", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationBus implements InvalidationBus {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+}
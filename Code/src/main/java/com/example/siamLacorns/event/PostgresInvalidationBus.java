@@ -0,0 +1,152 @@
+package com.example.siamLacorns.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Шина инвалидации на PostgreSQL LISTEN/NOTIFY: отдельной инфраструктуры не нужно.
+ * Отправка - pg_notify через общий пул; приём - выделенное соединение вне пула,
+ * которое опрашивается фоновым потоком и переподключается при обрыве.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.mode", havingValue = "postgres")
+public class PostgresInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JdbcConnectionDetails connectionDetails;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cache.invalidation.channel:siam_cache_invalidation}")
+    private String channel;
+
+    @Value("${cache.invalidation.poll-timeout-ms:500}")
+    private int pollTimeoutMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @PostConstruct
+    public void start() {
+        // Имя канала подставляется в LISTEN как идентификатор, поэтому проверяется заранее
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalStateException("Invalid cache invalidation channel name: " + channel);
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listenerThread.interrupt();
+        listenerThread.join(pollTimeoutMs * 2L);
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        try {
+            String payload = objectMapper.writeValueAsString(message);
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, channel, payload);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Запись уже закоммичена; остальные узлы догонят по TTL своих кэшей
+            logger.warn("Failed to publish cache invalidation {}: {}", message, e.getMessage());
+        }
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    private void listen() {
+        long reconnectDelay = 500;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                    connectionDetails.getUsername(), connectionDetails.getPassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                logger.info("Listening for cache invalidations on channel '{}' as node {}", channel, nodeId);
+                if (reconnecting) {
+                    // Пока соединения не было, сообщения могли потеряться
+                    eventPublisher.publishEvent(new InvalidationResyncEvent());
+                }
+                reconnectDelay = 500;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                reconnecting = true;
+                logger.warn("Cache invalidation listener lost connection, retrying in {} ms: {}",
+                        reconnectDelay, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            InvalidationMessage message = objectMapper.readValue(payload, InvalidationMessage.class);
+            if (nodeId.equals(message.origin())) {
+                return;
+            }
+            eventPublisher.publishEvent(message);
+        } catch (Exception e) {
+            logger.warn("Failed to apply cache invalidation '{}': {}", payload, e.getMessage());
+        }
+    }
+}
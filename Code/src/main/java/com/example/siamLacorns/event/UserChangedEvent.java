@@ -0,0 +1,49 @@
+package com.example.siamLacorns.event;
+
+// Событие изменения пользователя: по нему сбрасываются кэши, построенные по id или имени пользователя.
+// username - имя, под которым пользователь был известен до изменения
+public class UserChangedEvent {
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+
+    private final Long userId;
+    private final String username;
+    private final Type type;
+    private final boolean remote;
+
+    public UserChangedEvent(Long userId, String username, Type type) {
+        this(userId, username, type, false);
+    }
+
+    public UserChangedEvent(Long userId, String username, Type type, boolean remote) {
+        this.userId = userId;
+        this.username = username;
+        this.type = type;
+        this.remote = remote;
+    }
+
+    public static UserChangedEvent upsert(Long userId, String username) {
+        return new UserChangedEvent(userId, username, Type.UPSERT);
+    }
+
+    public static UserChangedEvent delete(Long userId, String username) {
+        return new UserChangedEvent(userId, username, Type.DELETE);
+    }
+
+    public Long getUserId() { return userId; }
+
+    public String getUsername() { return username; }
+
+    public Type getType() { return type; }
+
+    public boolean isDelete() { return type == Type.DELETE; }
+
+    public boolean isRemote() { return remote; }
+
+    @Override
+    public String toString() {
+        return "UserChangedEvent{userId=" + userId + ", username='" + username + "', type=" + type + ", remote=" + remote + '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.siamLacorns.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Дорожка эпизода: ступень видео-лестницы (общая для всех озвучек), аудио одной озвучки
+ * или субтитры. Мастер-плейлист собирает их вместе, поэтому озвучка - это только аудио,
+ * а не отдельная копия видео.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "episode_media_tracks", indexes = {
+        @Index(name = "idx_episode_media_tracks_episode", columnList = "episode_id")
+})
+public class EpisodeMediaTrack {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Дорожки удаляются базой вместе с эпизодом (ON DELETE CASCADE)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "episode_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Episode episode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private Kind kind;
+
+    // Только для AUDIO
+    @Enumerated(EnumType.STRING)
+    @Column(name = "voiceover_type")
+    private Episode.VoiceoverType voiceover;
+
+    // Код языка (ru, en) для AUDIO и SUBTITLES
+    @Column(name = "language")
+    private String language;
+
+    // Заявленный битрейт в бит/с; если не задан, считается по сегментам
+    @Column(name = "bandwidth")
+    private Long bandwidth;
+
+    // Только для VIDEO
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    // RFC 6381, например avc1.64001f или mp4a.40.2
+    @Column(name = "codecs")
+    private String codecs;
+
+    public EpisodeMediaTrack(Episode episode, Kind kind) {
+        this.episode = episode;
+        this.kind = kind;
+    }
+
+    public enum Kind {
+        VIDEO, AUDIO, SUBTITLES
+    }
+}
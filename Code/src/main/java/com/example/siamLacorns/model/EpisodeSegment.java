@@ -0,0 +1,51 @@
+package com.example.siamLacorns.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Сегмент HLS одной дорожки эпизода; по этим записям строятся плейлисты
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "episode_segments", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_episode_segments_track_sequence",
+                columnNames = {"track_id", "sequence_number"})
+})
+public class EpisodeSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Сегменты удаляются базой вместе с дорожкой (ON DELETE CASCADE)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "track_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private EpisodeMediaTrack track;
+
+    @Column(name = "sequence_number", nullable = false)
+    private Integer sequence;
+
+    // Длительность в секундах (#EXTINF)
+    @Column(name = "duration_seconds", nullable = false)
+    private Double duration;
+
+    // Путь внутри video.storage.root
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    public EpisodeSegment(EpisodeMediaTrack track, Integer sequence, Double duration, String filePath, Long sizeBytes) {
+        this.track = track;
+        this.sequence = sequence;
+        this.duration = duration;
+        this.filePath = filePath;
+        this.sizeBytes = sizeBytes;
+    }
+}
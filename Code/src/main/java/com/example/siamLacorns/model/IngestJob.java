@@ -0,0 +1,94 @@
+package com.example.siamLacorns.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Загрузка и обработка видео эпизода: UPLOADING (принимаются фрагменты) -> QUEUED -> PROCESSING
+ * -> COMPLETED или FAILED. Переходы делаются условными UPDATE в IngestJobRepository,
+ * поэтому повторный фрагмент или второй воркер не испортят состояние.
+ * PROCESSING-задание принадлежит узлу ownerNode, который обновляет heartbeatAt;
+ * в очередь возвращаются только задания с устаревшим heartbeat (узел упал или остановлен).
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "ingest_jobs", indexes = {
+        @Index(name = "idx_ingest_jobs_episode", columnList = "episode_id"),
+        @Index(name = "idx_ingest_jobs_status", columnList = "status")
+})
+public class IngestJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "episode_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Episode episode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    // Озвучка загруженного файла: его звук станет аудиодорожкой этой озвучки
+    @Enumerated(EnumType.STRING)
+    @Column(name = "voiceover_type")
+    private Episode.VoiceoverType voiceover;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    // SHA-256 загруженного файла; сам файл лежит в BlobStorageService, пока задание его держит
+    @Column(name = "source_hash", length = 64)
+    private String sourceHash;
+
+    @Column(name = "total_bytes", nullable = false)
+    private Long totalBytes;
+
+    @Column(name = "received_bytes", nullable = false)
+    private Long receivedBytes;
+
+    // Процент обработки, 0..100
+    @Column(name = "progress", nullable = false)
+    private Integer progress;
+
+    @Column(name = "message", length = 1000)
+    private String message;
+
+    // Узел, который обрабатывает задание, и время его последнего heartbeat
+    @Column(name = "owner_node", length = 64)
+    private String ownerNode;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public IngestJob(Episode episode, Episode.VoiceoverType voiceover, String fileName, Long totalBytes) {
+        this.episode = episode;
+        this.voiceover = voiceover;
+        this.fileName = fileName;
+        this.totalBytes = totalBytes;
+        this.receivedBytes = 0L;
+        this.progress = 0;
+        this.status = Status.UPLOADING;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public enum Status {
+        UPLOADING, QUEUED, PROCESSING, COMPLETED, FAILED
+    }
+}
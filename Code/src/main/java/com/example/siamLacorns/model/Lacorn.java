@@ -13,7 +13,11 @@ import java.util.List;
 @Getter
 @NoArgsConstructor
 @Entity
-@Table(name = "lacorns")
+@Table(name = "lacorns", indexes = {
+        // Под keyset-ленты LacornRepository.find*FeedIds*
+        @Index(name = "idx_lacorns_rating_id", columnList = "rating DESC, id DESC"),
+        @Index(name = "idx_lacorns_created_at_id", columnList = "created_at DESC, id DESC")
+})
 public class Lacorn {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
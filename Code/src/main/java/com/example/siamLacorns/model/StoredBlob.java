@@ -0,0 +1,42 @@
+package com.example.siamLacorns.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Файл в хранилище, адресуемом по содержимому: ключ - SHA-256 байтов.
+ * refCount - число ссылок (аватары, исходники эпизодов); файл с нулём ссылок
+ * удаляет сборщик мусора BlobStorageService спустя blob.gc.grace-period после releasedAt.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "stored_blobs", indexes = {
+        @Index(name = "idx_stored_blobs_ref_count_released", columnList = "ref_count, released_at")
+})
+public class StoredBlob {
+    // SHA-256 в hex, 64 символа
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+}
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_watch_history")
+@Table(name = "user_watch_history", uniqueConstraints = {
+        // Одна запись прогресса на пару пользователь-сериал; на ней держится ON CONFLICT в UserWatchHistoryRepository
+        @UniqueConstraint(name = "uk_user_watch_history_user_lacorn", columnNames = {"user_id", "lacorn_id"})
+})
 public class UserWatchHistory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -2,10 +2,13 @@
 package com.example.siamLacorns.repository;
 
 import com.example.siamLacorns.model.Actor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,4 +27,12 @@ public interface ActorRepository extends JpaRepository<Actor, Long> {
 
     @Query("SELECT a FROM Actor a WHERE LOWER(a.nationality) = LOWER(:nationality)")
     List<Actor> findByNationality(@Param("nationality") String nationality);
+
+    @Query("SELECT DISTINCT a.photoUrl FROM Actor a WHERE a.photoUrl LIKE CONCAT(:prefix, '%')")
+    List<String> findPhotoUrlsStartingWith(@Param("prefix") String prefix, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Actor a SET a.photoUrl = :newUrl WHERE a.photoUrl = :oldUrl")
+    int replacePhotoUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
 }
\ No newline at end of file
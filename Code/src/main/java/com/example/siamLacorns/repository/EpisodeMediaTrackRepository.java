@@ -0,0 +1,21 @@
+package com.example.siamLacorns.repository;
+
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.EpisodeMediaTrack;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EpisodeMediaTrackRepository extends JpaRepository<EpisodeMediaTrack, Long> {
+
+    List<EpisodeMediaTrack> findByEpisodeIdOrderByIdAsc(Long episodeId);
+
+    boolean existsByEpisodeId(Long episodeId);
+
+    boolean existsByEpisodeIdAndKind(Long episodeId, EpisodeMediaTrack.Kind kind);
+
+    List<EpisodeMediaTrack> findByEpisodeIdAndKindAndVoiceover(Long episodeId, EpisodeMediaTrack.Kind kind,
+                                                               Episode.VoiceoverType voiceover);
+}
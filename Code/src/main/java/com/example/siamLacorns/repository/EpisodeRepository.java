@@ -2,7 +2,9 @@ package com.example.siamLacorns.repository;
 
 
 import com.example.siamLacorns.model.Episode;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,4 +28,17 @@ public interface EpisodeRepository extends JpaRepository<Episode, Long> {
     Optional<Integer> findMaxEpisodeNumber(@Param("lacornId") Long lacornId, @Param("seasonNumber") Integer seasonNumber);
 
     List<Episode> findByLacornId(Long lacornId);
+
+    // Только идентификатор сериала - без загрузки эпизода и лакорна
+    @Query("SELECT e.lacorn.id FROM Episode e WHERE e.id = :episodeId")
+    Optional<Long> findLacornIdById(@Param("episodeId") Long episodeId);
+
+    // Путь к видеофайлу для стриминга - без загрузки эпизода
+    @Query("SELECT e.videoUrl FROM Episode e WHERE e.id = :episodeId")
+    Optional<String> findVideoUrlById(@Param("episodeId") Long episodeId);
+
+    // Сохранение дорожек эпизода по одному: параллельные задания не создадут вторую лестницу видео
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Episode e WHERE e.id = :id")
+    Optional<Episode> findForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,20 @@
+package com.example.siamLacorns.repository;
+
+import com.example.siamLacorns.model.EpisodeSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EpisodeSegmentRepository extends JpaRepository<EpisodeSegment, Long> {
+
+    List<EpisodeSegment> findByTrackIdOrderBySequenceAsc(Long trackId);
+
+    @Modifying
+    @Query("DELETE FROM EpisodeSegment s WHERE s.track.id = :trackId")
+    int deleteByTrackId(@Param("trackId") Long trackId);
+}
@@ -0,0 +1,96 @@
+package com.example.siamLacorns.repository;
+
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.IngestJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngestJobRepository extends JpaRepository<IngestJob, Long> {
+
+    List<IngestJob> findByEpisodeIdOrderByIdDesc(Long episodeId);
+
+    // Тот же файл той же озвучки этого эпизода уже обработан
+    Optional<IngestJob> findFirstByEpisodeIdAndVoiceoverAndSourceHashAndStatus(Long episodeId,
+                                                                              Episode.VoiceoverType voiceover,
+                                                                              String sourceHash,
+                                                                              IngestJob.Status status);
+
+    @Query("SELECT j.id FROM IngestJob j WHERE j.status = :status ORDER BY j.id")
+    List<Long> findIdsByStatus(@Param("status") IngestJob.Status status, Pageable pageable);
+
+    @Query("SELECT j.id FROM IngestJob j WHERE j.status = :status AND j.updatedAt < :before")
+    List<Long> findIdsByStatusUpdatedBefore(@Param("status") IngestJob.Status status,
+                                            @Param("before") LocalDateTime before);
+
+    // Сдвиг позиции загрузки; 0 - позиция уже другая (параллельный или повторный фрагмент)
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.receivedBytes = :received, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = :uploading AND j.receivedBytes = :expected")
+    int advanceUpload(@Param("id") Long id, @Param("uploading") IngestJob.Status uploading, @Param("expected") long expected,
+                      @Param("received") long received, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :to, j.updatedAt = :now WHERE j.id = :id AND j.status = :from")
+    int transition(@Param("id") Long id, @Param("from") IngestJob.Status from,
+                   @Param("to") IngestJob.Status to, @Param("now") LocalDateTime now);
+
+    // QUEUED -> PROCESSING с записью владельца; 0 - задание уже забрал другой воркер
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :to, j.ownerNode = :node, j.heartbeatAt = :now, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = :from")
+    int claim(@Param("id") Long id, @Param("from") IngestJob.Status from, @Param("to") IngestJob.Status to,
+              @Param("node") String node, @Param("now") LocalDateTime now);
+
+    // Узел подтверждает, что его задания ещё обрабатываются
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.heartbeatAt = :now WHERE j.ownerNode = :node AND j.status = :status")
+    int heartbeat(@Param("node") String node, @Param("status") IngestJob.Status status, @Param("now") LocalDateTime now);
+
+    // Обработка, чей узел перестал подавать heartbeat, снова в очередь; живые узлы не затрагиваются
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :to, j.progress = 0, j.ownerNode = NULL, j.heartbeatAt = NULL, " +
+            "j.updatedAt = :now WHERE j.status = :from AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :before)")
+    int requeueStale(@Param("from") IngestJob.Status from, @Param("to") IngestJob.Status to,
+                     @Param("before") LocalDateTime before, @Param("now") LocalDateTime now);
+
+    // Завершение обработки владельцем; 0 - задание у него уже забрали
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :to, j.progress = :progress, j.message = :message, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = :from AND j.ownerNode = :node")
+    int finishOwned(@Param("id") Long id, @Param("node") String node, @Param("from") IngestJob.Status from,
+                    @Param("to") IngestJob.Status to, @Param("progress") int progress,
+                    @Param("message") String message, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.sourceHash = :sourceHash, j.updatedAt = :now WHERE j.id = :id")
+    int updateSourceHash(@Param("id") Long id, @Param("sourceHash") String sourceHash, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.progress = :progress, j.updatedAt = :now WHERE j.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("progress") int progress, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :status, j.progress = :progress, j.message = :message, j.updatedAt = :now " +
+            "WHERE j.id = :id")
+    int finish(@Param("id") Long id, @Param("status") IngestJob.Status status, @Param("progress") int progress,
+               @Param("message") String message, @Param("now") LocalDateTime now);
+}
@@ -3,13 +3,22 @@ package com.example.siamLacorns.repository;
 
 import com.example.siamLacorns.model.Lacorn;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public interface LacornRepository extends JpaRepository<Lacorn, Long> {
@@ -35,16 +44,48 @@ public interface LacornRepository extends JpaRepository<Lacorn, Long> {
     @Query("SELECT DISTINCT l FROM Lacorn l LEFT JOIN FETCH l.episodes LEFT JOIN FETCH l.actors ORDER BY l.rating DESC")
     List<Lacorn> findAllWithEpisodesAndActorsOrderByRatingDesc(Pageable pageable);
 
-    // Добавьте эти методы с JOIN FETCH
-    @Query("SELECT DISTINCT l FROM Lacorn l LEFT JOIN FETCH l.genres")
-    Page<Lacorn> findAllWithGenres(Pageable pageable);
+    // Постраничная выборка в две фазы: JOIN FETCH вместе с Pageable заставлял Hibernate
+    // загружать всю таблицу и резать страницу в памяти (HHH90003004).
+    // Фаза 1 - страница идентификаторов, фаза 2 - граф только для этих идентификаторов.
+    @Query(value = "SELECT l.id FROM Lacorn l", countQuery = "SELECT COUNT(l) FROM Lacorn l")
+    Page<Long> findAllIds(Pageable pageable);
+
+    @Query(value = "SELECT l.id FROM Lacorn l WHERE LOWER(l.title) LIKE LOWER(CONCAT('%', :query, '%'))",
+            countQuery = "SELECT COUNT(l) FROM Lacorn l WHERE LOWER(l.title) LIKE LOWER(CONCAT('%', :query, '%'))")
+    Page<Long> findIdsByTitleContainingIgnoreCase(@Param("query") String query, Pageable pageable);
+
+    @Query("SELECT DISTINCT l FROM Lacorn l LEFT JOIN FETCH l.genres WHERE l.id IN :ids")
+    List<Lacorn> findAllWithGenresByIdIn(@Param("ids") Collection<Long> ids);
+
+    default Page<Lacorn> findAllWithGenres(Pageable pageable) {
+        return fetchWithGenres(findAllIds(pageable));
+    }
+
+    default Page<Lacorn> findByTitleContainingIgnoreCaseWithGenres(String query, Pageable pageable) {
+        return fetchWithGenres(findIdsByTitleContainingIgnoreCase(query, pageable));
+    }
+
+    // Загружает лакорны по странице идентификаторов, сохраняя порядок страницы
+    default Page<Lacorn> fetchWithGenres(Page<Long> idPage) {
+        return new PageImpl<>(findAllWithGenresInOrder(idPage.getContent()),
+                idPage.getPageable(), idPage.getTotalElements());
+    }
+
+    default List<Lacorn> findAllWithGenresInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Lacorn> byId = findAllWithGenresByIdIn(ids).stream()
+                .collect(Collectors.toMap(Lacorn::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
     @Query("SELECT DISTINCT l FROM Lacorn l LEFT JOIN FETCH l.genres WHERE l.id = :id")
     Optional<Lacorn> findByIdWithGenres(@Param("id") Long id);
 
-    @Query("SELECT DISTINCT l FROM Lacorn l LEFT JOIN FETCH l.genres WHERE l.title LIKE %:query%")
-    Page<Lacorn> findByTitleContainingIgnoreCaseWithGenres(@Param("query") String query, Pageable pageable);
-
     @Query("SELECT DISTINCT l FROM Lacorn l LEFT JOIN FETCH l.genres g WHERE :genre MEMBER OF l.genres")
     List<Lacorn> findByGenresContainingWithGenres(@Param("genre") String genre);
 
@@ -62,6 +103,78 @@ public interface LacornRepository extends JpaRepository<Lacorn, Long> {
     // Для фильтрации по жанру с сортировкой по рейтингу
     List<Lacorn> findByGenresContainingOrderByRatingDesc(String genre);
 
+    // Keyset-ленты: (rating DESC, id DESC) и (createdAt DESC, id DESC).
+    // Следующая страница ищется по индексу от последнего элемента, без OFFSET.
+    @Query("SELECT l.id FROM Lacorn l WHERE l.rating IS NOT NULL ORDER BY l.rating DESC, l.id DESC")
+    List<Long> findRatingFeedIds(Pageable limit);
+
+    @Query("SELECT l.id FROM Lacorn l WHERE l.rating IS NOT NULL " +
+            "AND (l.rating < :rating OR (l.rating = :rating AND l.id < :id)) " +
+            "ORDER BY l.rating DESC, l.id DESC")
+    List<Long> findRatingFeedIdsAfter(@Param("rating") Double rating, @Param("id") Long id, Pageable limit);
+
+    @Query("SELECT l.id FROM Lacorn l WHERE l.createdAt IS NOT NULL ORDER BY l.createdAt DESC, l.id DESC")
+    List<Long> findLatestFeedIds(Pageable limit);
+
+    @Query("SELECT l.id FROM Lacorn l WHERE l.createdAt IS NOT NULL " +
+            "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :id)) " +
+            "ORDER BY l.createdAt DESC, l.id DESC")
+    List<Long> findLatestFeedIdsAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                      Pageable limit);
+
+    // Карточки каталога: только скалярные поля, без загрузки графа сущности
+    @Query(value = "SELECT l.id AS id, l.title AS title, l.posterUrl AS posterUrl, l.rating AS rating, " +
+            "l.releaseYear AS releaseYear, l.status AS status FROM Lacorn l",
+            countQuery = "SELECT COUNT(l) FROM Lacorn l")
+    Page<LacornSummary> findAllSummaries(Pageable pageable);
+
+    @Query("SELECT l.id AS id, l.title AS title, l.posterUrl AS posterUrl, l.rating AS rating, " +
+            "l.releaseYear AS releaseYear, l.status AS status FROM Lacorn l WHERE l.id = :id")
+    Optional<LacornSummary> findSummaryById(@Param("id") Long id);
+
+    // Связи лакорн-актёр без загрузки сущностей: [lacornId, actorId, actorName, actorPhotoUrl]
+    @Query("SELECT l.id, a.id, a.name, a.photoUrl FROM Lacorn l JOIN l.actors a")
+    List<Object[]> findAllActorLinks();
+
+    @Query("SELECT l.id, a.id, a.name, a.photoUrl FROM Lacorn l JOIN l.actors a WHERE l.id = :id")
+    List<Object[]> findActorLinksByLacornId(@Param("id") Long id);
+
+    // Данные для фасетного индекса: [id, rating, releaseYear, status, ageRating]
+    @Query("SELECT l.id, l.rating, l.releaseYear, l.status, l.ageRating FROM Lacorn l")
+    List<Object[]> findAllFacetRows();
+
+    @Query("SELECT l.id, l.rating, l.releaseYear, l.status, l.ageRating FROM Lacorn l WHERE l.id = :id")
+    List<Object[]> findFacetRowsById(@Param("id") Long id);
+
+    @Query("SELECT l.id, g FROM Lacorn l JOIN l.genres g")
+    List<Object[]> findAllGenreLinks();
+
+    @Query("SELECT l.id, c FROM Lacorn l JOIN l.productionCountries c")
+    List<Object[]> findAllCountryLinks();
+
+    @Query("SELECT l.id, c FROM Lacorn l JOIN l.productionCountries c WHERE l.id IN :ids")
+    List<Object[]> findCountriesByLacornIds(@Param("ids") Collection<Long> ids);
+
+    // Жанры для набора лакорнов одним запросом: пары [lacornId, genre]
+    @Query("SELECT l.id, g FROM Lacorn l JOIN l.genres g WHERE l.id IN :ids")
+    List<Object[]> findGenresByLacornIds(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT l FROM Lacorn l JOIN l.actors a WHERE a.id = :actorId")
     List<Lacorn> findByActorId(Long actorId);
+
+    // Постеры, ещё не перенесённые с внешнего CDN (зеркалирование картинок TMDB)
+    @Query("SELECT DISTINCT l.posterUrl FROM Lacorn l WHERE l.posterUrl LIKE CONCAT(:prefix, '%')")
+    List<String> findPosterUrlsStartingWith(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT l.posterUrl FROM Lacorn l WHERE l.id = :id")
+    Optional<String> findPosterUrlById(@Param("id") Long id);
+
+    // Лакорны, у которых картинка url - постер или фото кого-то из актёров
+    @Query("SELECT DISTINCT l.id FROM Lacorn l LEFT JOIN l.actors a WHERE l.posterUrl = :url OR a.photoUrl = :url")
+    List<Long> findIdsByImageUrl(@Param("url") String url);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Lacorn l SET l.posterUrl = :newUrl WHERE l.posterUrl = :oldUrl")
+    int replacePosterUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
 }
\ No newline at end of file
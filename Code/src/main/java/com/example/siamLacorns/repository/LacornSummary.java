@@ -0,0 +1,19 @@
+package com.example.siamLacorns.repository;
+
+import com.example.siamLacorns.model.Lacorn;
+
+// Лёгкая проекция лакорна для карточек каталога: без эпизодов, актёров и озвучек
+public interface LacornSummary {
+
+    Long getId();
+
+    String getTitle();
+
+    String getPosterUrl();
+
+    Double getRating();
+
+    Integer getReleaseYear();
+
+    Lacorn.SeriesStatus getStatus();
+}
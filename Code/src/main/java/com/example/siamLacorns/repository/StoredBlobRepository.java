@@ -0,0 +1,59 @@
+package com.example.siamLacorns.repository;
+
+import com.example.siamLacorns.model.StoredBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    /**
+     * Новая ссылка на блоб одним оператором: вставка или ref_count + 1.
+     * Если сборщик мусора как раз удаляет эту строку, оператор дождётся его коммита и вставит её заново.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stored_blobs (hash, size_bytes, content_type, ref_count, created_at, released_at) " +
+            "VALUES (:hash, :sizeBytes, :contentType, 1, :now, NULL) " +
+            "ON CONFLICT (hash) DO UPDATE SET ref_count = stored_blobs.ref_count + 1, released_at = NULL",
+            nativeQuery = true)
+    int addReference(@Param("hash") String hash, @Param("sizeBytes") long sizeBytes,
+                     @Param("contentType") String contentType, @Param("now") LocalDateTime now);
+
+    // Ссылка на уже существующий блоб; 0 - блоба нет
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1, b.releasedAt = NULL WHERE b.hash = :hash")
+    int acquire(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now " +
+            "WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    // Постранично по ключу: хеши после after, чтобы неудалённые блобы не выбирались снова
+    @Query("SELECT b.hash FROM StoredBlob b WHERE b.refCount = 0 AND b.releasedAt < :before AND b.hash > :after " +
+            "ORDER BY b.hash")
+    List<String> findUnreferencedHashesAfter(@Param("before") LocalDateTime before, @Param("after") String after,
+                                             Pageable pageable);
+
+    @Query("SELECT b.hash FROM StoredBlob b WHERE b.hash IN :hashes")
+    List<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.hash = :hash")
+    Optional<StoredBlob> findForUpdate(@Param("hash") String hash);
+}
@@ -2,20 +2,52 @@ package com.example.siamLacorns.repository;
 
 import com.example.siamLacorns.model.UserWatchHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserWatchHistoryRepository extends JpaRepository<UserWatchHistory, Long> {
 
+    /**
+     * Атомарная запись прогресса одним оператором. Опирается на уникальный ключ (user_id, lacorn_id);
+     * более старая позиция не затирает более новую, если heartbeat'ы пришли не по порядку.
+     * Тот же текст используется пакетным сбросом WatchProgressBuffer.
+     */
+    String UPSERT_PROGRESS_SQL =
+            "INSERT INTO user_watch_history (user_id, lacorn_id, episode_id, current_time_seconds, is_completed, last_watched, created_at) " +
+            "VALUES (:userId, :lacornId, :episodeId, :currentTime, :completed, :lastWatched, :lastWatched) " +
+            "ON CONFLICT (user_id, lacorn_id) DO UPDATE SET " +
+            "episode_id = EXCLUDED.episode_id, " +
+            "current_time_seconds = EXCLUDED.current_time_seconds, " +
+            "is_completed = EXCLUDED.is_completed, " +
+            "last_watched = EXCLUDED.last_watched " +
+            "WHERE user_watch_history.last_watched IS NULL OR user_watch_history.last_watched <= EXCLUDED.last_watched";
+
+    @Transactional
+    @Modifying
+    @Query(value = UPSERT_PROGRESS_SQL, nativeQuery = true)
+    int upsertProgress(@Param("userId") Long userId,
+                       @Param("lacornId") Long lacornId,
+                       @Param("episodeId") Long episodeId,
+                       @Param("currentTime") Integer currentTime,
+                       @Param("completed") boolean completed,
+                       @Param("lastWatched") LocalDateTime lastWatched);
+
     Optional<UserWatchHistory> findByUserIdAndLacornId(Long userId, Long lacornId);
 
     List<UserWatchHistory> findByUserId(Long userId);
 
+    // Прогресс пользователя сразу для всех лакорнов страницы - один запрос вместо N
+    List<UserWatchHistory> findByUserIdAndLacornIdIn(Long userId, Collection<Long> lacornIds);
+
     List<UserWatchHistory> findByUserIdOrderByLastWatchedDesc(Long userId);
 
     Optional<UserWatchHistory> findByUserIdAndEpisodeId(Long userId, Long episodeId);
@@ -0,0 +1,471 @@
+package com.example.siamLacorns.search;
+
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.repository.LacornRepository;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Инвертированный индекс каталога по жанрам, странам, статусам, возрастным рейтингам и годам.
+ * Для каждого значения хранится сжатый битмап (RoaringBitmap) порядковых номеров лакорнов.
+ * Номера раздаются по убыванию рейтинга, поэтому обход результата по возрастанию
+ * уже даёт выдачу, отсортированную по рейтингу, и страница - это rank/select по битмапу.
+ * <p>
+ * Рядом с битмапами лежит колоночный снимок тех же данных (значения закодированы словарями),
+ * по которому счётчики всех фасетов считаются за один проход.
+ */
+@Component
+public class CatalogFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogFacetIndex.class);
+
+    public static final String FACET_GENRES = "genres";
+    public static final String FACET_COUNTRIES = "productionCountries";
+    public static final String FACET_STATUS = "status";
+    public static final String FACET_YEAR = "releaseYear";
+    public static final String FACET_AGE_RATING = "ageRating";
+
+    // Ширина корзины фасета по году выпуска: 2020-2024, 2025-2029, ...
+    private static final int YEAR_BUCKET_SIZE = 5;
+
+    @Autowired
+    private LacornRepository lacornRepository;
+
+    private final Map<Long, FacetRow> rows = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "facet-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    // После переподключения шины инвалидаций часть событий могла потеряться - перечитываем всё,
+    // заодно убирая строки лакорнов, удалённых за это время
+    @EventListener({ApplicationReadyEvent.class, InvalidationResyncEvent.class})
+    public synchronized void load() {
+        try {
+            Map<Long, FacetRow> loaded = new HashMap<>();
+            for (FacetRow row : loadRows(lacornRepository.findAllFacetRows(),
+                    lacornRepository.findAllGenreLinks(), lacornRepository.findAllCountryLinks())) {
+                loaded.put(row.id, row);
+            }
+            rows.keySet().retainAll(loaded.keySet());
+            rows.putAll(loaded);
+            snapshot = Snapshot.build(rows.values());
+            logger.info("Facet index built: {} lacorns", rows.size());
+        } catch (Exception e) {
+            logger.error("Failed to build facet index: {}", e.getMessage(), e);
+        }
+    }
+
+    // fallbackExecution - события с других узлов публикуются вне транзакции
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        try {
+            Long id = event.getLacornId();
+            rows.remove(id);
+            if (!event.isDelete()) {
+                List<Long> ids = List.of(id);
+                for (FacetRow row : loadRows(lacornRepository.findFacetRowsById(id),
+                        lacornRepository.findGenresByLacornIds(ids), lacornRepository.findCountriesByLacornIds(ids))) {
+                    rows.put(row.id, row);
+                }
+            }
+            scheduleRebuild();
+        } catch (Exception e) {
+            logger.error("Failed to update facet index for {}: {}", event, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Страница идентификаторов, подходящих под фильтр (по убыванию рейтинга),
+     * и число совпадений для каждого значения каждого фасета.
+     */
+    public FacetResult query(FacetFilter filter, int offset, int limit) {
+        Snapshot current = snapshot;
+        RoaringBitmap matched = current.match(filter);
+
+        int total = matched.getCardinality();
+        List<Long> ids = new ArrayList<>();
+        if (offset >= 0 && offset < total && limit > 0) {
+            PeekableIntIterator iterator = matched.getIntIterator();
+            iterator.advanceIfNeeded(matched.select(offset));
+            while (iterator.hasNext() && ids.size() < limit) {
+                ids.add(current.ids[iterator.next()]);
+            }
+        }
+
+        return new FacetResult(ids, total, current.countFacets(filter));
+    }
+
+    /**
+     * Счётчики по всем фасетам за один проход по колоночному снимку.
+     * Жанры (AND) считаются под полным фильтром; для фасетов с выбором «любой из»
+     * собственный фильтр не учитывается, чтобы было видно, сколько добавит соседнее значение.
+     */
+    public Map<String, Map<String, Integer>> facets(FacetFilter filter) {
+        return snapshot.countFacets(filter);
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                snapshot = Snapshot.build(rows.values());
+            });
+        }
+    }
+
+    // Строки [id, rating, releaseYear, status, ageRating] и пары [id, genre] / [id, country]
+    private static List<FacetRow> loadRows(List<Object[]> scalars, List<Object[]> genreLinks,
+                                           List<Object[]> countryLinks) {
+        Map<Long, FacetRow> result = new HashMap<>();
+        for (Object[] row : scalars) {
+            Lacorn.SeriesStatus status = (Lacorn.SeriesStatus) row[3];
+            result.put((Long) row[0], new FacetRow((Long) row[0], (Double) row[1], (Integer) row[2],
+                    status != null ? status.name() : null, (String) row[4]));
+        }
+        for (Object[] link : genreLinks) {
+            FacetRow row = result.get((Long) link[0]);
+            if (row != null && link[1] != null) row.genres.add((String) link[1]);
+        }
+        for (Object[] link : countryLinks) {
+            FacetRow row = result.get((Long) link[0]);
+            if (row != null && link[1] != null) row.countries.add((String) link[1]);
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    static class FacetRow {
+        final long id;
+        final Double rating;
+        final Integer releaseYear;
+        final String status;
+        final String ageRating;
+        final List<String> genres = new ArrayList<>();
+        final List<String> countries = new ArrayList<>();
+
+        FacetRow(long id, Double rating, Integer releaseYear, String status, String ageRating) {
+            this.id = id;
+            this.rating = rating;
+            this.releaseYear = releaseYear;
+            this.status = status;
+            this.ageRating = ageRating;
+        }
+    }
+
+    // Неизменяемый снимок индекса; пересобирается целиком, запросы читают его без блокировок
+    private static class Snapshot {
+        private static final RoaringBitmap NONE = new RoaringBitmap();
+
+        final long[] ids;
+        final RoaringBitmap all = new RoaringBitmap();
+        final Map<String, RoaringBitmap> genres = new TreeMap<>();
+        final Map<String, RoaringBitmap> countries = new TreeMap<>();
+        final Map<String, RoaringBitmap> statuses = new TreeMap<>();
+        final Map<String, RoaringBitmap> ageRatings = new TreeMap<>();
+        final TreeMap<Integer, RoaringBitmap> years = new TreeMap<>();
+
+        // Колоночное представление: по порядковому номеру - индексы значений в словарях
+        final Dictionary genreDictionary;
+        final Dictionary countryDictionary;
+        final Dictionary statusDictionary;
+        final Dictionary ageRatingDictionary;
+        final Dictionary yearBucketDictionary;
+        final int[][] genreColumn;
+        final int[][] countryColumn;
+        final int[] statusColumn;
+        final int[] ageRatingColumn;
+        final int[] yearBucketColumn;
+        final Integer[] yearColumn;
+
+        private Snapshot(List<FacetRow> ordered) {
+            int size = ordered.size();
+            this.ids = new long[size];
+            this.genreDictionary = new Dictionary(ordered.stream().flatMap(row -> row.genres.stream()));
+            this.countryDictionary = new Dictionary(ordered.stream().flatMap(row -> row.countries.stream()));
+            this.statusDictionary = new Dictionary(ordered.stream().map(row -> row.status));
+            this.ageRatingDictionary = new Dictionary(ordered.stream().map(row -> row.ageRating));
+            this.yearBucketDictionary = new Dictionary(ordered.stream().map(row -> yearBucket(row.releaseYear)));
+            this.genreColumn = new int[size][];
+            this.countryColumn = new int[size][];
+            this.statusColumn = new int[size];
+            this.ageRatingColumn = new int[size];
+            this.yearBucketColumn = new int[size];
+            this.yearColumn = new Integer[size];
+        }
+
+        static Snapshot build(Collection<FacetRow> source) {
+            List<FacetRow> ordered = new ArrayList<>(source);
+            ordered.sort(Comparator
+                    .comparingDouble((FacetRow row) -> row.rating != null ? row.rating : -1.0).reversed()
+                    .thenComparing(Comparator.comparingLong((FacetRow row) -> row.id).reversed()));
+
+            Snapshot snapshot = new Snapshot(ordered);
+            for (int ordinal = 0; ordinal < ordered.size(); ordinal++) {
+                FacetRow row = ordered.get(ordinal);
+                snapshot.ids[ordinal] = row.id;
+                snapshot.all.add(ordinal);
+                snapshot.genreColumn[ordinal] = snapshot.genreDictionary.encodeAll(row.genres);
+                snapshot.countryColumn[ordinal] = snapshot.countryDictionary.encodeAll(row.countries);
+                snapshot.statusColumn[ordinal] = snapshot.statusDictionary.encode(row.status);
+                snapshot.ageRatingColumn[ordinal] = snapshot.ageRatingDictionary.encode(row.ageRating);
+                snapshot.yearBucketColumn[ordinal] = snapshot.yearBucketDictionary.encode(yearBucket(row.releaseYear));
+                snapshot.yearColumn[ordinal] = row.releaseYear;
+                for (String genre : row.genres) {
+                    snapshot.genres.computeIfAbsent(genre, key -> new RoaringBitmap()).add(ordinal);
+                }
+                for (String country : row.countries) {
+                    snapshot.countries.computeIfAbsent(country, key -> new RoaringBitmap()).add(ordinal);
+                }
+                if (row.status != null) {
+                    snapshot.statuses.computeIfAbsent(row.status, key -> new RoaringBitmap()).add(ordinal);
+                }
+                if (row.ageRating != null) {
+                    snapshot.ageRatings.computeIfAbsent(row.ageRating, key -> new RoaringBitmap()).add(ordinal);
+                }
+                if (row.releaseYear != null) {
+                    snapshot.years.computeIfAbsent(row.releaseYear, key -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+            snapshot.genres.values().forEach(RoaringBitmap::runOptimize);
+            snapshot.countries.values().forEach(RoaringBitmap::runOptimize);
+            snapshot.statuses.values().forEach(RoaringBitmap::runOptimize);
+            snapshot.ageRatings.values().forEach(RoaringBitmap::runOptimize);
+            snapshot.years.values().forEach(RoaringBitmap::runOptimize);
+            snapshot.all.runOptimize();
+            return snapshot;
+        }
+
+        RoaringBitmap match(FacetFilter filter) {
+            RoaringBitmap matched = all.clone();
+            for (String genre : filter.getGenres()) {
+                matched.and(genres.getOrDefault(genre, NONE));
+            }
+            if (!filter.getCountries().isEmpty()) {
+                matched.and(anyOf(countries, filter.getCountries()));
+            }
+            if (!filter.getStatuses().isEmpty()) {
+                matched.and(anyOf(statuses, filter.getStatuses()));
+            }
+            if (!filter.getAgeRatings().isEmpty()) {
+                matched.and(anyOf(ageRatings, filter.getAgeRatings()));
+            }
+            if (filter.hasYearRange()) {
+                int from = filter.getYearFrom() != null ? filter.getYearFrom() : Integer.MIN_VALUE;
+                int to = filter.getYearTo() != null ? filter.getYearTo() : Integer.MAX_VALUE;
+                // Пустой диапазон - пустой результат: subMap с from > to бросает исключение
+                RoaringBitmap inRange = new RoaringBitmap();
+                if (from <= to) {
+                    for (RoaringBitmap year : years.subMap(from, true, to, true).values()) {
+                        inRange.or(year);
+                    }
+                }
+                matched.and(inRange);
+            }
+            return matched;
+        }
+
+        Map<String, Map<String, Integer>> countFacets(FacetFilter filter) {
+            int[] genreCounts = new int[genreDictionary.size()];
+            int[] countryCounts = new int[countryDictionary.size()];
+            int[] statusCounts = new int[statusDictionary.size()];
+            int[] ageRatingCounts = new int[ageRatingDictionary.size()];
+            int[] yearBucketCounts = new int[yearBucketDictionary.size()];
+
+            int[] requiredGenres = genreDictionary.encodeAll(filter.getGenres());
+            boolean genresSatisfiable = requiredGenres.length == filter.getGenres().stream().distinct().count();
+            boolean[] allowedCountries = countryDictionary.allowed(filter.getCountries());
+            boolean[] allowedStatuses = statusDictionary.allowed(filter.getStatuses());
+            boolean[] allowedAgeRatings = ageRatingDictionary.allowed(filter.getAgeRatings());
+
+            for (int ordinal = 0; genresSatisfiable && ordinal < ids.length; ordinal++) {
+                if (!containsAll(genreColumn[ordinal], requiredGenres)) {
+                    continue;
+                }
+                boolean countryFails = allowedCountries != null && !anyAllowed(countryColumn[ordinal], allowedCountries);
+                boolean statusFails = allowedStatuses != null && !isAllowed(statusColumn[ordinal], allowedStatuses);
+                boolean ageRatingFails = allowedAgeRatings != null && !isAllowed(ageRatingColumn[ordinal], allowedAgeRatings);
+                boolean yearFails = !filter.acceptsYear(yearColumn[ordinal]);
+
+                int fails = (countryFails ? 1 : 0) + (statusFails ? 1 : 0) + (ageRatingFails ? 1 : 0) + (yearFails ? 1 : 0);
+                if (fails > 1) {
+                    continue;
+                }
+                if (fails == 0) {
+                    for (int genre : genreColumn[ordinal]) genreCounts[genre]++;
+                }
+                if (fails == 0 || countryFails) {
+                    for (int country : countryColumn[ordinal]) countryCounts[country]++;
+                }
+                if ((fails == 0 || statusFails) && statusColumn[ordinal] >= 0) {
+                    statusCounts[statusColumn[ordinal]]++;
+                }
+                if ((fails == 0 || ageRatingFails) && ageRatingColumn[ordinal] >= 0) {
+                    ageRatingCounts[ageRatingColumn[ordinal]]++;
+                }
+                if ((fails == 0 || yearFails) && yearBucketColumn[ordinal] >= 0) {
+                    yearBucketCounts[yearBucketColumn[ordinal]]++;
+                }
+            }
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put(FACET_GENRES, genreDictionary.decodeCounts(genreCounts));
+            facets.put(FACET_COUNTRIES, countryDictionary.decodeCounts(countryCounts));
+            facets.put(FACET_YEAR, yearBucketDictionary.decodeCounts(yearBucketCounts));
+            facets.put(FACET_STATUS, statusDictionary.decodeCounts(statusCounts));
+            facets.put(FACET_AGE_RATING, ageRatingDictionary.decodeCounts(ageRatingCounts));
+            return facets;
+        }
+
+        private static String yearBucket(Integer year) {
+            if (year == null) {
+                return null;
+            }
+            int start = year - Math.floorMod(year, YEAR_BUCKET_SIZE);
+            return start + "-" + (start + YEAR_BUCKET_SIZE - 1);
+        }
+
+        private static boolean containsAll(int[] values, int[] required) {
+            for (int value : required) {
+                if (!contains(values, value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean contains(int[] values, int value) {
+            for (int candidate : values) {
+                if (candidate == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean anyAllowed(int[] values, boolean[] allowed) {
+            for (int value : values) {
+                if (allowed[value]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isAllowed(int value, boolean[] allowed) {
+            return value >= 0 && allowed[value];
+        }
+
+        private static RoaringBitmap anyOf(Map<String, RoaringBitmap> byValue, List<String> values) {
+            RoaringBitmap union = new RoaringBitmap();
+            for (String value : values) {
+                RoaringBitmap bitmap = byValue.get(value);
+                if (bitmap != null) {
+                    union.or(bitmap);
+                }
+            }
+            return union;
+        }
+    }
+
+    // Отсортированный словарь значений колонки: строка <-> плотный индекс
+    private static class Dictionary {
+        private final String[] values;
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        Dictionary(Stream<String> source) {
+            this.values = source.filter(Objects::nonNull).distinct().sorted().toArray(String[]::new);
+            for (int i = 0; i < values.length; i++) {
+                indexes.put(values[i], i);
+            }
+        }
+
+        int size() {
+            return values.length;
+        }
+
+        int encode(String value) {
+            Integer index = value != null ? indexes.get(value) : null;
+            return index != null ? index : -1;
+        }
+
+        // Неизвестные значения отбрасываются
+        int[] encodeAll(List<String> source) {
+            return source.stream().distinct().mapToInt(this::encode).filter(index -> index >= 0).toArray();
+        }
+
+        // null - фильтр по колонке не задан
+        boolean[] allowed(List<String> selected) {
+            if (selected.isEmpty()) {
+                return null;
+            }
+            boolean[] allowed = new boolean[values.length];
+            for (int index : encodeAll(selected)) {
+                allowed[index] = true;
+            }
+            return allowed;
+        }
+
+        Map<String, Integer> decodeCounts(int[] counts) {
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    result.put(values[i], counts[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+    public static class FacetResult {
+        private final List<Long> ids;
+        private final long total;
+        private final Map<String, Map<String, Integer>> facets;
+
+        public FacetResult(List<Long> ids, long total, Map<String, Map<String, Integer>> facets) {
+            this.ids = ids;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<Long> getIds() { return ids; }
+
+        public long getTotal() { return total; }
+
+        public Map<String, Map<String, Integer>> getFacets() { return facets; }
+    }
+}
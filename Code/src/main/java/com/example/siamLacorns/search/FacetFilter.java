@@ -0,0 +1,50 @@
+package com.example.siamLacorns.search;
+
+import com.example.siamLacorns.exception.ValidationException;
+
+import java.util.List;
+
+/**
+ * Фильтр каталога: все указанные жанры обязательны (AND),
+ * страны, статусы и возрастные рейтинги - любой из перечисленных (OR), годы - включительный диапазон.
+ */
+public class FacetFilter {
+    private List<String> genres = List.of();
+    private List<String> countries = List.of();
+    private List<String> statuses = List.of();
+    private List<String> ageRatings = List.of();
+    private Integer yearFrom;
+    private Integer yearTo;
+
+    public FacetFilter() {}
+
+    public FacetFilter(List<String> genres, List<String> countries, List<String> statuses,
+                       List<String> ageRatings, Integer yearFrom, Integer yearTo) {
+        this.genres = genres != null ? genres : List.of();
+        this.countries = countries != null ? countries : List.of();
+        this.statuses = statuses != null ? statuses : List.of();
+        this.ageRatings = ageRatings != null ? ageRatings : List.of();
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new ValidationException("yearFrom не может быть больше yearTo");
+        }
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+    }
+
+    public List<String> getGenres() { return genres; }
+    public List<String> getCountries() { return countries; }
+    public List<String> getStatuses() { return statuses; }
+    public List<String> getAgeRatings() { return ageRatings; }
+    public Integer getYearFrom() { return yearFrom; }
+    public Integer getYearTo() { return yearTo; }
+
+    public boolean hasYearRange() {
+        return yearFrom != null || yearTo != null;
+    }
+
+    public boolean acceptsYear(Integer year) {
+        if (!hasYearRange()) return true;
+        if (year == null) return false;
+        return (yearFrom == null || year >= yearFrom) && (yearTo == null || year <= yearTo);
+    }
+}
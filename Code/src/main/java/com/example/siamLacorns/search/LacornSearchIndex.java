@@ -0,0 +1,268 @@
+package com.example.siamLacorns.search;
+
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.model.Actor;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.repository.LacornRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Встроенный полнотекстовый индекс лакорнов (Lucene, ранжирование BM25).
+ * Индексирует название, описание и имена актёров; строится при старте приложения
+ * и обновляется после коммита каждой записи через {@link LacornChangedEvent}.
+ */
+@Component
+public class LacornSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LacornSearchIndex.class);
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_DESCRIPTION = "description";
+    private static final String FIELD_ACTORS = "actors";
+    private static final String FIELD_GENERATION = "generation";
+
+    // Вес совпадения по полю: название важнее имён актёров, а те - описания
+    private static final Map<String, Float> FIELD_BOOSTS = new LinkedHashMap<>();
+
+    static {
+        FIELD_BOOSTS.put(FIELD_TITLE, 3.0f);
+        FIELD_BOOSTS.put(FIELD_ACTORS, 2.0f);
+        FIELD_BOOSTS.put(FIELD_DESCRIPTION, 1.0f);
+    }
+
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private LacornRepository lacornRepository;
+
+    private final Analyzer analyzer = new MultilingualAnalyzer();
+    private final Directory directory = new ByteBuffersDirectory();
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean ready = false;
+
+    // Поколение полной перестройки: документы, не переписанные последней перестройкой, удаляются
+    private volatile long generation = 0;
+
+    @PostConstruct
+    public void open() throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Полная перестройка индекса из базы при старте и после переподключения шины инвалидаций
+     * (пропущенные за это время события не восстановить). Документы перезаписываются на месте,
+     * а не после deleteAll: поиск, обновлённый параллельным событием, не увидит пустой индекс.
+     */
+    @EventListener({ApplicationReadyEvent.class, InvalidationResyncEvent.class})
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            long current = ++generation;
+            int page = 0;
+            long indexed = 0;
+            Page<Lacorn> batch;
+            do {
+                batch = lacornRepository.findAll(PageRequest.of(page++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                for (Lacorn lacorn : batch) {
+                    writer.updateDocument(new Term(FIELD_KEY, String.valueOf(lacorn.getId())), toDocument(lacorn));
+                    indexed++;
+                }
+            } while (batch.hasNext());
+            // Всё, что не переписано этим проходом, - лакорны, удалённые в базе
+            writer.deleteDocuments(new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(FIELD_GENERATION, String.valueOf(current))), BooleanClause.Occur.MUST_NOT)
+                    .build());
+            writer.commit();
+            searcherManager.maybeRefresh();
+            ready = true;
+            logger.info("Search index built: {} lacorns in {} ms", indexed, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Failed to build search index, falling back to database search: {}", e.getMessage(), e);
+        }
+    }
+
+    // fallbackExecution - события с других узлов публикуются вне транзакции
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        try {
+            Term key = new Term(FIELD_KEY, String.valueOf(event.getLacornId()));
+            if (event.isDelete()) {
+                writer.deleteDocuments(key);
+            } else {
+                lacornRepository.findById(event.getLacornId())
+                        .ifPresent(lacorn -> {
+                            try {
+                                writer.updateDocument(key, toDocument(lacorn));
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+            }
+            searcherManager.maybeRefresh();
+        } catch (Exception e) {
+            logger.error("Failed to update search index for {}: {}", event, e.getMessage(), e);
+        }
+    }
+
+    public SearchResult search(String text, int offset, int limit) throws IOException {
+        Query query = buildQuery(text);
+        if (query == null) {
+            return new SearchResult(List.of(), 0);
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            // Страница за последним совпадением пуста; иначе лучших документов не больше, чем совпадений
+            int totalHits = searcher.count(query);
+            if (offset < 0 || offset >= totalHits) {
+                return new SearchResult(List.of(), totalHits);
+            }
+            int top = (int) Math.min((long) offset + Math.max(1, limit), totalHits);
+            TopDocs topDocs = searcher.search(query, top);
+            StoredFields storedFields = searcher.storedFields();
+            List<Long> ids = new ArrayList<>();
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                ids.add(storedFields.document(hits[i].doc).getField(FIELD_ID).numericValue().longValue());
+            }
+            return new SearchResult(ids, totalHits);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    // Каждый терм запроса обязателен и ищется во всех полях; последний - ещё и как префикс
+    private Query buildQuery(String text) throws IOException {
+        List<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size(); i++) {
+            boolean last = i == terms.size() - 1;
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (Map.Entry<String, Float> field : FIELD_BOOSTS.entrySet()) {
+                Term term = new Term(field.getKey(), terms.get(i));
+                anyField.add(new BoostQuery(new TermQuery(term), field.getValue()), BooleanClause.Occur.SHOULD);
+                if (last) {
+                    anyField.add(new BoostQuery(new PrefixQuery(term), field.getValue() / 2),
+                            BooleanClause.Occur.SHOULD);
+                }
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String text) throws IOException {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        try (TokenStream tokenStream = analyzer.tokenStream(FIELD_TITLE, text)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private Document toDocument(Lacorn lacorn) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_KEY, String.valueOf(lacorn.getId()), Field.Store.NO));
+        document.add(new StoredField(FIELD_ID, lacorn.getId()));
+        document.add(new StringField(FIELD_GENERATION, String.valueOf(generation), Field.Store.NO));
+        document.add(new TextField(FIELD_TITLE, nullToEmpty(lacorn.getTitle()), Field.Store.NO));
+        document.add(new TextField(FIELD_DESCRIPTION, nullToEmpty(lacorn.getDescription()), Field.Store.NO));
+        if (lacorn.getActors() != null) {
+            for (Actor actor : lacorn.getActors()) {
+                document.add(new TextField(FIELD_ACTORS, nullToEmpty(actor.getName()), Field.Store.NO));
+            }
+        }
+        return document;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    public static class SearchResult {
+        private final List<Long> ids;
+        private final long totalHits;
+
+        public SearchResult(List<Long> ids, long totalHits) {
+            this.ids = ids;
+            this.totalHits = totalHits;
+        }
+
+        public List<Long> getIds() { return ids; }
+
+        public long getTotalHits() { return totalHits; }
+    }
+}
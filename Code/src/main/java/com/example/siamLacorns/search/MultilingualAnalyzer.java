@@ -0,0 +1,25 @@
+package com.example.siamLacorns.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.icu.ICUFoldingFilter;
+import org.apache.lucene.analysis.icu.segmentation.DefaultICUTokenizerConfig;
+import org.apache.lucene.analysis.icu.segmentation.ICUTokenizer;
+
+/**
+ * Анализатор для тайских, корейских, китайских, кириллических и латинских названий.
+ * ICU разбивает тайский текст по словарю, иероглифы и хангыль режутся на биграммы,
+ * а ICUFoldingFilter приводит регистр, диакритику и ширину символов к единому виду.
+ */
+public class MultilingualAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer source = new ICUTokenizer(new DefaultICUTokenizerConfig(false, true));
+        TokenStream result = new CJKBigramFilter(source);
+        result = new ICUFoldingFilter(result);
+        return new TokenStreamComponents(source, result);
+    }
+}
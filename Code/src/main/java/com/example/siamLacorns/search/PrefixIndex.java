@@ -0,0 +1,141 @@
+package com.example.siamLacorns.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый префиксный индекс: отсортированный массив нормализованных ключей
+ * (по сути, развёрнутый в массив trie) и заранее посчитанные top-k для «тяжёлых» префиксов,
+ * под которые попадает слишком много ключей. Поиск - бинарный поиск плюс просмотр
+ * не более {@link #SCAN_LIMIT} ключей, без обращения к базе.
+ */
+final class PrefixIndex {
+
+    static final int MAX_RESULTS = 20;
+    private static final int SCAN_LIMIT = 256;
+
+    static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new int[0], new double[0]);
+
+    private final String[] keys;
+    private final int[] payloads;
+    private final double[] scores;
+    private final Map<String, int[]> heavyPrefixes = new HashMap<>();
+
+    private PrefixIndex(String[] keys, int[] payloads, double[] scores) {
+        this.keys = keys;
+        this.payloads = payloads;
+        this.scores = scores;
+        collectHeavyPrefixes(0, keys.length, 0);
+    }
+
+    /**
+     * @param entries пары (нормализованный ключ, номер элемента)
+     * @param scores  вес элемента по его номеру; больше - выше в выдаче
+     */
+    static PrefixIndex build(List<Map.Entry<String, Integer>> entries, double[] scores) {
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(entries);
+        sorted.sort(Map.Entry.comparingByKey());
+
+        String[] keys = new String[sorted.size()];
+        int[] payloads = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            keys[i] = sorted.get(i).getKey();
+            payloads[i] = sorted.get(i).getValue();
+        }
+        return new PrefixIndex(keys, payloads, scores);
+    }
+
+    // Нижний регистр, без диакритики, любые разделители схлопываются в один пробел
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && result.length() > 0) {
+                    result.append(' ');
+                }
+                pendingSpace = false;
+                result.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return result.toString().toLowerCase(Locale.ROOT);
+    }
+
+    int[] lookup(String normalizedPrefix, int limit) {
+        if (normalizedPrefix.isEmpty() || keys.length == 0) {
+            return new int[0];
+        }
+        int[] heavy = heavyPrefixes.get(normalizedPrefix);
+        if (heavy != null) {
+            return Arrays.copyOf(heavy, Math.min(limit, heavy.length));
+        }
+        int from = lowerBound(normalizedPrefix);
+        int to = lowerBound(normalizedPrefix + Character.MAX_VALUE);
+        return topK(from, to, limit);
+    }
+
+    // Все префиксы, под которые попадает больше SCAN_LIMIT ключей, получают готовый top-k
+    private void collectHeavyPrefixes(int from, int to, int depth) {
+        int i = from;
+        while (i < to) {
+            if (keys[i].length() <= depth) {
+                i++;
+                continue;
+            }
+            char c = keys[i].charAt(depth);
+            int j = i;
+            while (j < to && keys[j].length() > depth && keys[j].charAt(depth) == c) {
+                j++;
+            }
+            if (j - i > SCAN_LIMIT) {
+                heavyPrefixes.put(keys[i].substring(0, depth + 1), topK(i, j, MAX_RESULTS));
+                collectHeavyPrefixes(i, j, depth + 1);
+            }
+            i = j;
+        }
+    }
+
+    private int[] topK(int from, int to, int limit) {
+        Set<Integer> distinct = new LinkedHashSet<>();
+        for (int i = from; i < to; i++) {
+            distinct.add(payloads[i]);
+        }
+        return distinct.stream()
+                .sorted(Comparator.comparingDouble((Integer payload) -> scores[payload]).reversed())
+                .limit(limit)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.siamLacorns.search;
+
+import com.example.siamLacorns.dto.SuggestionDTO;
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.example.siamLacorns.repository.LacornSummary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Подсказки по мере ввода для названий лакорнов и имён актёров.
+ * Отвечает из неизменяемого {@link PrefixIndex} в памяти; при изменении каталога
+ * обновляется только запись изменённого лакорна, а индекс пересобирается в фоне.
+ */
+@Component
+public class TitleSuggester {
+
+    private static final Logger logger = LoggerFactory.getLogger(TitleSuggester.class);
+
+    private static final int MAX_KEY_LENGTH = 48;
+
+    @Autowired
+    private LacornRepository lacornRepository;
+
+    private final Map<Long, LacornItem> lacorns = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(PrefixIndex.EMPTY, new SuggestionDTO[0]);
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    // Повторная загрузка после переподключения шины инвалидаций: пропущенные события не восстановить
+    @EventListener({ApplicationReadyEvent.class, InvalidationResyncEvent.class})
+    public synchronized void load() {
+        try {
+            Map<Long, List<ActorItem>> actorsByLacornId = groupActors(lacornRepository.findAllActorLinks());
+            Map<Long, LacornItem> loaded = new HashMap<>();
+            for (LacornSummary summary : lacornRepository.findAllSummaries(Pageable.unpaged())) {
+                loaded.put(summary.getId(),
+                        new LacornItem(summary, actorsByLacornId.getOrDefault(summary.getId(), List.of())));
+            }
+            lacorns.keySet().retainAll(loaded.keySet());
+            lacorns.putAll(loaded);
+            rebuild();
+            logger.info("Suggest index built: {} lacorns", lacorns.size());
+        } catch (Exception e) {
+            logger.error("Failed to build suggest index: {}", e.getMessage(), e);
+        }
+    }
+
+    // fallbackExecution - события с других узлов публикуются вне транзакции
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        try {
+            Long id = event.getLacornId();
+            if (event.isDelete()) {
+                lacorns.remove(id);
+            } else {
+                lacornRepository.findSummaryById(id).ifPresent(summary -> lacorns.put(id,
+                        new LacornItem(summary, groupActors(lacornRepository.findActorLinksByLacornId(id))
+                                .getOrDefault(id, List.of()))));
+            }
+            scheduleRebuild();
+        } catch (Exception e) {
+            logger.error("Failed to update suggest index for {}: {}", event, e.getMessage(), e);
+        }
+    }
+
+    public List<SuggestionDTO> suggest(String query, int limit) {
+        Snapshot current = snapshot;
+        String normalized = PrefixIndex.normalize(query);
+        int max = Math.max(1, Math.min(limit, PrefixIndex.MAX_RESULTS));
+        if (normalized.length() <= MAX_KEY_LENGTH) {
+            return Arrays.stream(current.index.lookup(normalized, max))
+                    .mapToObj(payload -> current.suggestions[payload])
+                    .collect(Collectors.toList());
+        }
+        // Ключи обрезаны до MAX_KEY_LENGTH: ищем по обрезанному запросу, затем отсеиваем по полному
+        int[] found = current.index.lookup(normalized.substring(0, MAX_KEY_LENGTH), PrefixIndex.MAX_RESULTS);
+        return Arrays.stream(found)
+                .mapToObj(payload -> current.suggestions[payload])
+                .filter(suggestion -> startsWordAt(PrefixIndex.normalize(suggestion.getText()), normalized))
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // Несколько изменений подряд схлопываются в одну пересборку
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void rebuild() {
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        List<Map.Entry<String, Integer>> keys = new ArrayList<>();
+        Map<Long, SuggestionDTO> actors = new HashMap<>();
+
+        for (LacornItem lacorn : lacorns.values()) {
+            addKeys(keys, lacorn.title, suggestions.size());
+            suggestions.add(new SuggestionDTO("lacorn", lacorn.id, lacorn.title, lacorn.rating, lacorn.posterUrl));
+
+            // Рейтинг актёра в подсказках - лучший рейтинг его лакорнов
+            for (ActorItem actor : lacorn.actors) {
+                SuggestionDTO existing = actors.get(actor.id);
+                if (existing == null) {
+                    actors.put(actor.id, new SuggestionDTO("actor", actor.id, actor.name, lacorn.rating, actor.photoUrl));
+                } else if (score(lacorn.rating) > score(existing.getRating())) {
+                    existing.setRating(lacorn.rating);
+                }
+            }
+        }
+        for (SuggestionDTO actor : actors.values()) {
+            addKeys(keys, actor.getText(), suggestions.size());
+            suggestions.add(actor);
+        }
+
+        double[] scores = new double[suggestions.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = score(suggestions.get(i).getRating());
+        }
+        snapshot = new Snapshot(PrefixIndex.build(keys, scores), suggestions.toArray(new SuggestionDTO[0]));
+    }
+
+    // Ключи - полный текст и каждый его суффикс с начала слова: "runner" находит "Lovely Runner"
+    private static void addKeys(List<Map.Entry<String, Integer>> keys, String text, int payload) {
+        String normalized = PrefixIndex.normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        for (int start = 0; start < normalized.length(); start++) {
+            if (start == 0 || normalized.charAt(start - 1) == ' ') {
+                String key = normalized.substring(start, Math.min(normalized.length(), start + MAX_KEY_LENGTH));
+                keys.add(new AbstractMap.SimpleImmutableEntry<>(key, payload));
+            }
+        }
+    }
+
+    // Запрос - префикс текста или одного из его суффиксов с начала слова, как ключи в addKeys
+    private static boolean startsWordAt(String normalizedText, String normalizedQuery) {
+        return normalizedText.startsWith(normalizedQuery) || normalizedText.contains(" " + normalizedQuery);
+    }
+
+    private static double score(Double rating) {
+        return rating != null ? rating : 0.0;
+    }
+
+    // Строки вида [lacornId, actorId, actorName, actorPhotoUrl]
+    private static Map<Long, List<ActorItem>> groupActors(List<Object[]> rows) {
+        Map<Long, List<ActorItem>> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                    .add(new ActorItem((Long) row[1], (String) row[2], (String) row[3]));
+        }
+        return result;
+    }
+
+    private static class Snapshot {
+        private final PrefixIndex index;
+        private final SuggestionDTO[] suggestions;
+
+        Snapshot(PrefixIndex index, SuggestionDTO[] suggestions) {
+            this.index = index;
+            this.suggestions = suggestions;
+        }
+    }
+
+    private static class LacornItem {
+        private final Long id;
+        private final String title;
+        private final Double rating;
+        private final String posterUrl;
+        private final List<ActorItem> actors;
+
+        LacornItem(LacornSummary summary, List<ActorItem> actors) {
+            this.id = summary.getId();
+            this.title = summary.getTitle();
+            this.rating = summary.getRating();
+            this.posterUrl = summary.getPosterUrl();
+            this.actors = actors;
+        }
+    }
+
+    private static class ActorItem {
+        private final Long id;
+        private final String name;
+        private final String photoUrl;
+
+        ActorItem(Long id, String name, String photoUrl) {
+            this.id = id;
+            this.name = name;
+            this.photoUrl = photoUrl;
+        }
+    }
+}
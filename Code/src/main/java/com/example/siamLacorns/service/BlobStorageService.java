@@ -0,0 +1,293 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.StoredBlob;
+import com.example.siamLacorns.repository.StoredBlobRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище файлов, адресуемых по содержимому (blob.storage.root/ab/abcdef...).
+ * Загрузка идёт потоком во временный файл с подсчётом SHA-256 на лету; одинаковые файлы
+ * хранятся один раз, повторная загрузка лишь увеличивает счётчик ссылок.
+ * Порядок важен для сборщика мусора: сначала ссылка в базе, потом файл на место;
+ * сборщик удаляет файл под блокировкой строки и только при нулевом счётчике.
+ */
+@Service
+public class BlobStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStorageService.class);
+
+    public static final String URL_PREFIX = "/api/blobs/";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String TMP_DIR = "tmp";
+
+    @Autowired
+    private StoredBlobRepository blobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${blob.storage.root:blobs}")
+    private String storageRoot;
+
+    // Сколько блоб без ссылок живёт до удаления: успеть переиспользовать и не гоняться с загрузками
+    @Value("${blob.gc.grace-period:1h}")
+    private Duration gracePeriod;
+
+    @Value("${blob.gc.batch-size:500}")
+    private int gcBatchSize;
+
+    private Path root;
+    private Path tmp;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Files.createDirectories(Paths.get(storageRoot).toAbsolutePath().normalize());
+        tmp = Files.createDirectories(root.resolve(TMP_DIR));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public static boolean isHash(String value) {
+        return value != null && HASH.matcher(value).matches();
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String url(String hash) {
+        return URL_PREFIX + hash;
+    }
+
+    // Ключ блоба из URL вида .../api/blobs/{hash}; прочие URL (старые аватары, TMDB) - пусто
+    public static Optional<String> hashFromUrl(String url) {
+        if (url == null) {
+            return Optional.empty();
+        }
+        int index = url.lastIndexOf(URL_PREFIX);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        String hash = url.substring(index + URL_PREFIX.length());
+        return isHash(hash) ? Optional.of(hash) : Optional.empty();
+    }
+
+    /**
+     * Сохраняет поток и возвращает блоб с новой ссылкой на него.
+     * Больше maxBytes не читается: загрузка прерывается ValidationException.
+     */
+    public StoredBlob store(InputStream in, String contentType, long maxBytes) throws IOException {
+        MessageDigest digest = newDigest();
+        Path temp = Files.createTempFile(tmp, "upload", ".part");
+        try {
+            long size = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = digestIn.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new ValidationException("Файл больше " + maxBytes + " байт");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (size == 0) {
+                throw new ValidationException("Файл пустой");
+            }
+            return adopt(temp, HexFormat.of().formatHex(digest.digest()), contentType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Забирает уже посчитанный файл (например, загруженный фрагментами исходник эпизода) в хранилище.
+     * Если такой блоб уже есть, file просто удаляется.
+     */
+    public StoredBlob adopt(Path file, String hash, String contentType) throws IOException {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Not a SHA-256 hex digest: " + hash);
+        }
+        long size = Files.size(file);
+        blobRepository.addReference(hash, size, contentType, LocalDateTime.now());
+        Path target = path(hash);
+        if (Files.exists(target)) {
+            // Свежее время изменения уберегает файл от сборщика сирот, который мог не увидеть новую строку
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            Files.deleteIfExists(file);
+        } else {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Тот же файл параллельно положила другая загрузка
+                Files.deleteIfExists(file);
+            }
+        }
+        return blobRepository.findById(hash)
+                .orElseThrow(() -> new IllegalStateException("Blob " + hash + " vanished after insert"));
+    }
+
+    // Ещё одна ссылка на существующий блоб (загрузка по известному хешу без передачи байтов)
+    public boolean acquire(String hash) {
+        if (!isHash(hash) || blobRepository.acquire(hash) == 0) {
+            return false;
+        }
+        if (!Files.exists(path(hash))) {
+            release(hash);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String hash) {
+        if (isHash(hash) && blobRepository.release(hash, LocalDateTime.now()) == 0) {
+            logger.warn("Release of unknown or unreferenced blob {}", hash);
+        }
+    }
+
+    public StoredBlob find(String hash) {
+        if (!isHash(hash)) {
+            throw new ResourceNotFoundException("Файл не найден");
+        }
+        return blobRepository.findById(hash)
+                .filter(blob -> blob.getRefCount() > 0)
+                .orElseThrow(() -> new ResourceNotFoundException("Файл не найден"));
+    }
+
+    public Path path(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Сборка мусора: блобы без ссылок дольше grace-period, файлы без строки в базе
+     * (сбой между записью файла и коммитом) и брошенные временные файлы.
+     */
+    @Scheduled(fixedDelayString = "${blob.gc.interval-ms:600000}", initialDelayString = "${blob.gc.initial-delay-ms:60000}")
+    public void collectGarbage() {
+        LocalDateTime before = LocalDateTime.now().minus(gracePeriod);
+        int deleted = 0;
+        // Keyset по хешу: блоб, который не удалось удалить (например, IOException), не зацикливает проход
+        String lastSeen = "";
+        List<String> candidates;
+        do {
+            candidates = blobRepository.findUnreferencedHashesAfter(before, lastSeen, PageRequest.of(0, gcBatchSize));
+            for (String hash : candidates) {
+                lastSeen = hash;
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteIfUnreferenced(hash, before)))) {
+                    deleted++;
+                }
+            }
+        } while (candidates.size() == gcBatchSize);
+
+        int orphans = deleteOrphanFiles(Instant.now().minus(gracePeriod));
+        if (deleted > 0 || orphans > 0) {
+            logger.info("Blob GC removed {} unreferenced blobs and {} orphan files", deleted, orphans);
+        }
+    }
+
+    // Под блокировкой строки: параллельная ссылка на этот блоб дождётся коммита
+    private boolean deleteIfUnreferenced(String hash, LocalDateTime before) {
+        StoredBlob blob = blobRepository.findForUpdate(hash).orElse(null);
+        if (blob == null || blob.getRefCount() > 0 || blob.getReleasedAt() == null
+                || !blob.getReleasedAt().isBefore(before)) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(path(hash));
+        } catch (IOException e) {
+            logger.warn("Could not delete blob file {}: {}", hash, e.getMessage());
+            return false;
+        }
+        blobRepository.delete(blob);
+        return true;
+    }
+
+    private int deleteOrphanFiles(Instant olderThan) {
+        int deleted = 0;
+        List<Path> batch = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!Files.isRegularFile(file) || Files.getLastModifiedTime(file).toInstant().isAfter(olderThan)) {
+                    continue;
+                }
+                if (file.getParent().equals(tmp)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                } else if (isHash(file.getFileName().toString())) {
+                    batch.add(file);
+                    if (batch.size() == gcBatchSize) {
+                        deleted += deleteWithoutRows(batch, olderThan);
+                        batch.clear();
+                    }
+                }
+            }
+            deleted += deleteWithoutRows(batch, olderThan);
+        } catch (IOException e) {
+            logger.warn("Blob GC could not scan {}: {}", root, e.getMessage());
+        }
+        return deleted;
+    }
+
+    private int deleteWithoutRows(List<Path> files, Instant olderThan) throws IOException {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        Set<String> hashes = new HashSet<>();
+        for (Path file : files) {
+            hashes.add(file.getFileName().toString());
+        }
+        hashes.removeAll(blobRepository.findExistingHashes(hashes));
+        int deleted = 0;
+        for (Path file : files) {
+            // Файл мог только что получить строку: adopt обновляет время изменения, поэтому проверяем его ещё раз
+            if (hashes.contains(file.getFileName().toString())
+                    && Files.getLastModifiedTime(file).toInstant().isBefore(olderThan)
+                    && Files.deleteIfExists(file)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+}
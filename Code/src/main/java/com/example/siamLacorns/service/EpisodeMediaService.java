@@ -0,0 +1,132 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.repository.EpisodeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Видеофайлы эпизодов в локальном хранилище (video.storage.root).
+ * Episode.videoUrl вида /videos/xxx.mp4 указывает на файл xxx.mp4 внутри хранилища.
+ * Путь эпизода кэшируется, а размер и время изменения читаются на каждый запрос -
+ * это один stat, зато ETag меняется сразу после замены файла.
+ */
+@Service
+public class EpisodeMediaService {
+
+    private static final String VIDEO_URL_PREFIX = "/videos/";
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Value("${video.storage.root:videos}")
+    private String storageRoot;
+
+    @Value("${video.path-cache.maximum-size:10000}")
+    private long pathCacheMaximumSize;
+
+    @Value("${video.path-cache.expire-after-write:10m}")
+    private Duration pathCacheExpireAfterWrite;
+
+    private Path root;
+    private Cache<Long, Optional<Path>> pathByEpisodeId;
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(storageRoot).toAbsolutePath().normalize();
+        pathByEpisodeId = Caffeine.newBuilder()
+                .maximumSize(pathCacheMaximumSize)
+                .expireAfterWrite(pathCacheExpireAfterWrite)
+                .build();
+    }
+
+    public EpisodeMedia resolve(Long episodeId) {
+        Path path = pathByEpisodeId.get(episodeId, this::loadPath)
+                .orElseThrow(() -> new ResourceNotFoundException("Видео эпизода не найдено"));
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                throw new ResourceNotFoundException("Видео эпизода не найдено");
+            }
+            MediaType contentType = MediaTypeFactory.getMediaType(path.getFileName().toString())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+            return new EpisodeMedia(path, attributes.size(), attributes.lastModifiedTime().toMillis(), contentType);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Видео эпизода не найдено");
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать видео эпизода " + episodeId, e);
+        }
+    }
+
+    private Optional<Path> loadPath(Long episodeId) {
+        String videoUrl = episodeRepository.findVideoUrlById(episodeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Эпизод не найден"));
+        if (videoUrl == null || !videoUrl.startsWith(VIDEO_URL_PREFIX)) {
+            return Optional.empty();
+        }
+        return storagePath(videoUrl.substring(VIDEO_URL_PREFIX.length()));
+    }
+
+    // Файл внутри хранилища; путь не должен выводить за его пределы (../)
+    public Optional<Path> storagePath(String relativePath) {
+        Path path = root.resolve(relativePath).normalize();
+        return path.startsWith(root) ? Optional.of(path) : Optional.empty();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        pathByEpisodeId.invalidateAll();
+    }
+
+    @EventListener(InvalidationResyncEvent.class)
+    public void invalidateAll() {
+        pathByEpisodeId.invalidateAll();
+    }
+
+    // Файл эпизода и валидаторы для условных запросов
+    public static class EpisodeMedia {
+        private final Path path;
+        private final long length;
+        private final long lastModified;
+        private final MediaType contentType;
+
+        public EpisodeMedia(Path path, long length, long lastModified, MediaType contentType) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+
+        public Path getPath() { return path; }
+
+        public long getLength() { return length; }
+
+        public long getLastModified() { return lastModified; }
+
+        public MediaType getContentType() { return contentType; }
+
+        // Сильный валидатор из размера и времени изменения, как у nginx: годится для If-Range
+        public String getETag() {
+            return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Курсор keyset-пагинации: значение ключа сортировки и id последнего элемента страницы.
+ * Клиенту отдаётся в виде непрозрачной base64url-строки.
+ */
+final class FeedCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final String sortValue;
+    private final Long id;
+
+    private FeedCursor(String sortValue, Long id) {
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    static String encode(String feed, Object sortValue, Long id) {
+        String raw = feed + SEPARATOR + sortValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static FeedCursor decode(String feed, String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3 || !parts[0].equals(feed)) {
+                throw new ValidationException("Некорректный курсор ленты");
+            }
+            return new FeedCursor(parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор ленты");
+        }
+    }
+
+    String getSortValue() {
+        return sortValue;
+    }
+
+    // Типизированные ключи сортировки: испорченное значение в корректном base64 - тоже 400, а не 500
+    Double getSortValueAsDouble() {
+        double value;
+        try {
+            value = Double.parseDouble(sortValue);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор ленты");
+        }
+        if (!Double.isFinite(value)) {
+            throw new ValidationException("Некорректный курсор ленты");
+        }
+        return value;
+    }
+
+    LocalDateTime getSortValueAsDateTime() {
+        try {
+            return LocalDateTime.parse(sortValue);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Некорректный курсор ленты");
+        }
+    }
+
+    Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.model.EpisodeMediaTrack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Обработка внешними ffprobe/ffmpeg (ingest.ffmpeg.path, ingest.ffprobe.path).
+ * Видео перекодируется в H.264 с ключевыми кадрами строго через ingest.segment-seconds,
+ * чтобы границы сегментов у всех ступеней лестницы совпадали и плеер мог переключаться между ними;
+ * звук - в AAC отдельной дорожкой. Прогресс читается из -progress pipe:1.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.processor", havingValue = "ffmpeg")
+public class FfmpegMediaProcessor implements MediaProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FfmpegMediaProcessor.class);
+
+    // H.264 High@4.0 и AAC-LC - то, что указано в -profile:v/-level и -c:a ниже
+    private static final String VIDEO_CODECS = "avc1.640028";
+    private static final String AUDIO_CODECS = "mp4a.40.2";
+    private static final String SEGMENT_LIST = "segments.csv";
+
+    @Value("${ingest.ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+
+    @Value("${ingest.ffprobe.path:ffprobe}")
+    private String ffprobePath;
+
+    @Value("${ingest.ffmpeg.timeout:2h}")
+    private Duration timeout;
+
+    @Value("${ingest.segment-seconds:6}")
+    private int segmentSeconds;
+
+    @Override
+    public MediaProbe probe(Path source) throws IOException {
+        Path log = Files.createTempFile("ffprobe", ".log");
+        try {
+            List<String> output = new ArrayList<>();
+            run(List.of(ffprobePath, "-v", "error",
+                    "-show_entries", "format=duration:stream=codec_type,width,height",
+                    "-of", "default=noprint_wrappers=1", source.toString()), log, output::add);
+
+            Map<String, String> values = new HashMap<>();
+            boolean hasAudio = false;
+            for (String line : output) {
+                int eq = line.indexOf('=');
+                if (eq <= 0) {
+                    continue;
+                }
+                String key = line.substring(0, eq);
+                String value = line.substring(eq + 1);
+                if (key.equals("codec_type") && value.equals("audio")) {
+                    hasAudio = true;
+                }
+                // Первое значение - первый видеопоток; у аудиопотоков width/height = N/A
+                if (!value.equals("N/A")) {
+                    values.putIfAbsent(key, value);
+                }
+            }
+            return new MediaProbe(parseDouble(values.get("duration")), parseInt(values.get("width")),
+                    parseInt(values.get("height")), hasAudio);
+        } finally {
+            Files.deleteIfExists(log);
+        }
+    }
+
+    @Override
+    public void thumbnail(Path source, double positionSeconds, Path target) throws IOException {
+        Path log = target.resolveSibling(target.getFileName() + ".log");
+        try {
+            run(List.of(ffmpegPath, "-nostdin", "-v", "error", "-y",
+                    "-ss", String.format(Locale.ROOT, "%.3f", positionSeconds), "-i", source.toString(),
+                    "-frames:v", "1", "-vf", "scale=640:-2", "-q:v", "3", target.toString()), log, line -> { });
+        } finally {
+            Files.deleteIfExists(log);
+        }
+    }
+
+    @Override
+    public PackagedTrack packageTrack(Path source, MediaProbe probe, TrackSpec spec, Path outputDir,
+                                      DoubleConsumer progress) throws IOException {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-nostdin", "-v", "error", "-y",
+                "-i", source.toString()));
+        String codecs;
+        if (spec.kind() == EpisodeMediaTrack.Kind.AUDIO) {
+            command.addAll(List.of("-map", "0:a:0", "-vn", "-c:a", "aac", "-ac", "2",
+                    "-b:a", spec.bitrateKbps() + "k"));
+            codecs = AUDIO_CODECS;
+        } else if (spec.height() == null) {
+            command.addAll(List.of("-map", "0:v:0", "-an", "-c:v", "copy"));
+            codecs = null;
+        } else {
+            int bitrate = spec.bitrateKbps();
+            command.addAll(List.of("-map", "0:v:0", "-an",
+                    "-c:v", "libx264", "-preset", "veryfast", "-profile:v", "high", "-level", "4.0",
+                    "-vf", "scale=-2:" + spec.height(),
+                    "-b:v", bitrate + "k", "-maxrate", bitrate * 107 / 100 + "k", "-bufsize", bitrate * 3 / 2 + "k",
+                    "-sc_threshold", "0", "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")"));
+            codecs = VIDEO_CODECS;
+        }
+        Path segmentList = outputDir.resolve(SEGMENT_LIST);
+        command.addAll(List.of("-f", "segment", "-segment_time", Integer.toString(segmentSeconds),
+                "-segment_format", "mpegts", "-segment_list", segmentList.toString(), "-segment_list_type", "csv",
+                "-progress", "pipe:1", "-nostats", outputDir.resolve("%d.ts").toString()));
+
+        Double duration = probe.durationSeconds();
+        run(command, outputDir.resolve("ffmpeg.log"), line -> {
+            // out_time_us (в старых версиях out_time_ms) - микросекунды, несмотря на название
+            if (duration != null && duration > 0 && (line.startsWith("out_time_us=") || line.startsWith("out_time_ms="))) {
+                Double micros = parseDouble(line.substring(line.indexOf('=') + 1));
+                if (micros != null) {
+                    progress.accept(Math.min(1.0, micros / 1_000_000 / duration));
+                }
+            }
+        });
+        return new PackagedTrack(readSegmentList(segmentList, outputDir), codecs);
+    }
+
+    // Строки вида 12.ts,72.000000,78.000000
+    private static List<SegmentFile> readSegmentList(Path segmentList, Path outputDir) throws IOException {
+        List<SegmentFile> segments = new ArrayList<>();
+        for (String line : Files.readAllLines(segmentList, StandardCharsets.UTF_8)) {
+            String[] columns = line.split(",");
+            if (columns.length < 3) {
+                continue;
+            }
+            Path path = outputDir.resolve(columns[0]);
+            int sequence = Integer.parseInt(columns[0].substring(0, columns[0].indexOf('.')));
+            double duration = Double.parseDouble(columns[2]) - Double.parseDouble(columns[1]);
+            segments.add(new SegmentFile(sequence, duration, path, Files.size(path)));
+        }
+        Files.deleteIfExists(segmentList);
+        return segments;
+    }
+
+    // stdout построчно в consumer, stderr - в log; процесс убивается по ingest.ffmpeg.timeout и при прерывании потока
+    private void run(List<String> command, Path log, Consumer<String> stdout) throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectError(log.toFile())
+                .start();
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(process::destroyForcibly,
+                CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                stdout.accept(line);
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException(command.get(0) + " exited with " + exitCode + ": " + tail(log));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command.get(0), e);
+        } finally {
+            watchdog.cancel(false);
+            if (process.isAlive()) {
+                logger.warn("Killing {} (timeout or interrupted)", command.get(0));
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static String tail(Path log) {
+        try {
+            List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+            return String.join("\n", lines.subList(Math.max(0, lines.size() - 5), lines.size()));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static Double parseDouble(String value) {
+        try {
+            return value != null ? Double.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return value != null ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.EpisodeMediaTrack;
+import com.example.siamLacorns.model.EpisodeSegment;
+import com.example.siamLacorns.repository.EpisodeMediaTrackRepository;
+import com.example.siamLacorns.repository.EpisodeSegmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HLS по эпизоду: мастер-плейлист, плейлисты дорожек и сегменты.
+ * Видео - одна лестница битрейтов на все озвучки, каждая озвучка - отдельная аудиодорожка
+ * (EXT-X-MEDIA TYPE=AUDIO), субтитры - WebVTT-дорожки; плеер сам выбирает ступень видео под канал.
+ * Плейлисты строятся из EpisodeMediaTrack/EpisodeSegment один раз и держатся в памяти вместе
+ * с картой сегментов, так что запрос сегмента не ходит в базу; байты сегментов отдаёт SegmentCache.
+ */
+@Service
+public class HlsService {
+
+    public static final MediaType PLAYLIST_TYPE = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType MPEG_TS_TYPE = MediaType.parseMediaType("video/mp2t");
+    private static final MediaType WEBVTT_TYPE = MediaType.parseMediaType("text/vtt");
+    private static final String AUDIO_GROUP = "audio";
+    private static final String SUBTITLES_GROUP = "subs";
+
+    @Autowired
+    private EpisodeMediaTrackRepository trackRepository;
+
+    @Autowired
+    private EpisodeSegmentRepository segmentRepository;
+
+    @Autowired
+    private EpisodeMediaService episodeMediaService;
+
+    @Autowired
+    private SegmentCache segmentCache;
+
+    @Value("${hls.playlist-cache.maximum-size:10000}")
+    private long playlistCacheMaximumSize;
+
+    @Value("${hls.playlist-cache.expire-after-write:10m}")
+    private Duration playlistCacheExpireAfterWrite;
+
+    private Cache<Long, Rendition> renditions;
+    private Cache<Long, List<Rendition>> episodeRenditions;
+
+    @PostConstruct
+    public void init() {
+        renditions = Caffeine.newBuilder()
+                .maximumSize(playlistCacheMaximumSize)
+                .expireAfterWrite(playlistCacheExpireAfterWrite)
+                .build();
+        episodeRenditions = Caffeine.newBuilder()
+                .maximumSize(playlistCacheMaximumSize)
+                .expireAfterWrite(playlistCacheExpireAfterWrite)
+                .build();
+    }
+
+    public static Episode.VoiceoverType parseVoiceover(String value) {
+        try {
+            return Episode.VoiceoverType.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Неизвестная озвучка: " + value);
+        }
+    }
+
+    // В URL и плейлистах озвучка в нижнем регистре: russian_dub
+    public static String pathSegment(Episode.VoiceoverType voiceover) {
+        return voiceover.name().toLowerCase(Locale.ROOT);
+    }
+
+    public static String masterPlaylistUrl(Long episodeId, Episode.VoiceoverType voiceover) {
+        String url = "/api/lacorns/episodes/" + episodeId + "/hls/master.m3u8";
+        return voiceover != null ? url + "?voiceover=" + pathSegment(voiceover) : url;
+    }
+
+    public boolean hasTracks(Long episodeId) {
+        List<Rendition> cached = episodeRenditions.getIfPresent(episodeId);
+        return cached != null ? !cached.isEmpty() : trackRepository.existsByEpisodeId(episodeId);
+    }
+
+    /**
+     * Мастер-плейлист: EXT-X-STREAM-INF на каждую ступень видео, озвучки и субтитры - группами EXT-X-MEDIA.
+     * voiceover (может быть null) помечается DEFAULT=YES, чтобы плеер начал с неё.
+     */
+    public String masterPlaylist(Long episodeId, Episode.VoiceoverType voiceover) {
+        List<Rendition> tracks = episodeRenditions.get(episodeId, this::loadEpisodeRenditions);
+        List<Rendition> video = new ArrayList<>();
+        List<Rendition> audio = new ArrayList<>();
+        List<Rendition> subtitles = new ArrayList<>();
+        for (Rendition track : tracks) {
+            switch (track.kind) {
+                case VIDEO -> video.add(track);
+                case AUDIO -> audio.add(track);
+                case SUBTITLES -> subtitles.add(track);
+            }
+        }
+        if (video.isEmpty()) {
+            throw new ResourceNotFoundException("У эпизода нет HLS-дорожек");
+        }
+
+        Rendition defaultAudio = audio.stream()
+                .filter(track -> voiceover != null && track.voiceover == voiceover)
+                .findFirst()
+                .orElse(audio.isEmpty() ? null : audio.get(0));
+
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:4\n#EXT-X-INDEPENDENT-SEGMENTS\n");
+        long audioPeak = 0;
+        long audioAverage = 0;
+        for (Rendition track : audio) {
+            audioPeak = Math.max(audioPeak, track.peakBandwidth);
+            audioAverage = Math.max(audioAverage, track.averageBandwidth);
+            String name = track.voiceover != null ? pathSegment(track.voiceover) : "audio_" + track.trackId;
+            appendMedia(playlist, "AUDIO", AUDIO_GROUP, name, track, track == defaultAudio);
+        }
+        for (Rendition track : subtitles) {
+            String name = track.language != null ? track.language : "subtitles_" + track.trackId;
+            appendMedia(playlist, "SUBTITLES", SUBTITLES_GROUP, name, track, false);
+        }
+        // BANDWIDTH варианта включает самую тяжёлую аудиодорожку группы
+        for (Rendition track : video) {
+            playlist.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(track.peakBandwidth + audioPeak)
+                    .append(",AVERAGE-BANDWIDTH=").append(track.averageBandwidth + audioAverage);
+            if (track.width != null && track.height != null) {
+                playlist.append(",RESOLUTION=").append(track.width).append('x').append(track.height);
+            }
+            if (track.codecs != null) {
+                String codecs = defaultAudio != null && defaultAudio.codecs != null
+                        ? track.codecs + "," + defaultAudio.codecs
+                        : track.codecs;
+                playlist.append(",CODECS=\"").append(codecs).append('"');
+            }
+            if (!audio.isEmpty()) {
+                playlist.append(",AUDIO=\"").append(AUDIO_GROUP).append('"');
+            }
+            if (!subtitles.isEmpty()) {
+                playlist.append(",SUBTITLES=\"").append(SUBTITLES_GROUP).append('"');
+            }
+            playlist.append('\n').append(trackUri(track)).append('\n');
+        }
+        return playlist.toString();
+    }
+
+    public String mediaPlaylist(Long episodeId, Long trackId) {
+        return rendition(episodeId, trackId).playlist;
+    }
+
+    public SegmentData segment(Long episodeId, Long trackId, int sequence) throws IOException {
+        SegmentInfo segment = rendition(episodeId, trackId).segmentsBySequence.get(sequence);
+        if (segment == null) {
+            throw new ResourceNotFoundException("Сегмент не найден");
+        }
+        return new SegmentData(segmentCache.read(segment.path, segment.sizeBytes), segment.contentType);
+    }
+
+    // Для упаковщика: после записи новых дорожек или сегментов эпизода
+    public void invalidate(Long episodeId) {
+        episodeRenditions.invalidate(episodeId);
+        renditions.asMap().values().removeIf(rendition -> rendition.episodeId.equals(episodeId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener(InvalidationResyncEvent.class)
+    public void invalidateAll() {
+        episodeRenditions.invalidateAll();
+        renditions.invalidateAll();
+    }
+
+    private Rendition rendition(Long episodeId, Long trackId) {
+        Rendition rendition = renditions.get(trackId, this::loadRendition);
+        if (rendition == null || !rendition.episodeId.equals(episodeId) || rendition.segmentsBySequence.isEmpty()) {
+            throw new ResourceNotFoundException("Дорожка эпизода не найдена");
+        }
+        return rendition;
+    }
+
+    // null не кладётся в кэш: несуществующая дорожка просто не кэшируется
+    private Rendition loadRendition(Long trackId) {
+        return trackRepository.findById(trackId).map(this::buildRendition).orElse(null);
+    }
+
+    // Дорожки без доступных сегментов в мастер-плейлист не попадают
+    private List<Rendition> loadEpisodeRenditions(Long episodeId) {
+        List<Rendition> result = new ArrayList<>();
+        for (EpisodeMediaTrack track : trackRepository.findByEpisodeIdOrderByIdAsc(episodeId)) {
+            Rendition rendition = buildRendition(track);
+            renditions.put(track.getId(), rendition);
+            if (!rendition.segmentsBySequence.isEmpty()) {
+                result.add(rendition);
+            }
+        }
+        result.sort(Comparator.comparing((Rendition rendition) -> rendition.kind)
+                .thenComparing(rendition -> rendition.voiceover, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(rendition -> -rendition.peakBandwidth));
+        return List.copyOf(result);
+    }
+
+    private Rendition buildRendition(EpisodeMediaTrack track) {
+        List<SegmentInfo> segments = new ArrayList<>();
+        for (EpisodeSegment segment : segmentRepository.findByTrackIdOrderBySequenceAsc(track.getId())) {
+            Path path = episodeMediaService.storagePath(segment.getFilePath()).orElse(null);
+            if (path != null) {
+                segments.add(new SegmentInfo(segment.getSequence(), segment.getDuration(), path,
+                        segment.getSizeBytes(), contentType(path)));
+            }
+        }
+        return new Rendition(track, segments);
+    }
+
+    private static void appendMedia(StringBuilder playlist, String type, String group, String name,
+                                    Rendition track, boolean isDefault) {
+        playlist.append("#EXT-X-MEDIA:TYPE=").append(type)
+                .append(",GROUP-ID=\"").append(group).append('"')
+                .append(",NAME=\"").append(name).append('"');
+        if (track.language != null) {
+            playlist.append(",LANGUAGE=\"").append(track.language).append('"');
+        }
+        playlist.append(",DEFAULT=").append(isDefault ? "YES" : "NO")
+                .append(",AUTOSELECT=YES")
+                .append(",URI=\"").append(trackUri(track)).append("\"\n");
+    }
+
+    // Относительно master.m3u8
+    private static String trackUri(Rendition track) {
+        return "tracks/" + track.trackId + "/index.m3u8";
+    }
+
+    private static MediaType contentType(Path path) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(".ts")) {
+            return MPEG_TS_TYPE;
+        }
+        if (fileName.endsWith(".vtt")) {
+            return WEBVTT_TYPE;
+        }
+        return MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private static String extension(Path path) {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot) : "";
+    }
+
+    private record SegmentInfo(int sequence, double duration, Path path, long sizeBytes, MediaType contentType) {
+    }
+
+    public record SegmentData(ByteBuffer bytes, MediaType contentType) {
+    }
+
+    // Дорожка целиком: готовый VOD-плейлист, сегменты по номеру и битрейт для мастер-плейлиста
+    private static final class Rendition {
+        private final Long trackId;
+        private final Long episodeId;
+        private final EpisodeMediaTrack.Kind kind;
+        private final Episode.VoiceoverType voiceover;
+        private final String language;
+        private final Integer width;
+        private final Integer height;
+        private final String codecs;
+        private final Map<Integer, SegmentInfo> segmentsBySequence = new HashMap<>();
+        private final String playlist;
+        private final long peakBandwidth;
+        private final long averageBandwidth;
+
+        Rendition(EpisodeMediaTrack track, List<SegmentInfo> segments) {
+            this.trackId = track.getId();
+            this.episodeId = track.getEpisode().getId();
+            this.kind = track.getKind();
+            this.voiceover = track.getVoiceover();
+            this.language = track.getLanguage();
+            this.width = track.getWidth();
+            this.height = track.getHeight();
+            this.codecs = track.getCodecs();
+
+            double targetDuration = 0;
+            double totalDuration = 0;
+            long totalBytes = 0;
+            long peak = 0;
+            StringBuilder body = new StringBuilder();
+            for (SegmentInfo segment : segments) {
+                segmentsBySequence.put(segment.sequence(), segment);
+                targetDuration = Math.max(targetDuration, segment.duration());
+                totalDuration += segment.duration();
+                totalBytes += segment.sizeBytes();
+                if (segment.duration() > 0) {
+                    peak = Math.max(peak, Math.round(segment.sizeBytes() * 8 / segment.duration()));
+                }
+                body.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", segment.duration()))
+                        .append(segment.sequence()).append(extension(segment.path())).append('\n');
+            }
+            int firstSequence = segments.isEmpty() ? 0 : segments.get(0).sequence();
+            this.playlist = "#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-PLAYLIST-TYPE:VOD\n"
+                    + "#EXT-X-TARGETDURATION:" + (long) Math.ceil(targetDuration) + "\n"
+                    + "#EXT-X-MEDIA-SEQUENCE:" + firstSequence + "\n"
+                    + body
+                    + "#EXT-X-ENDLIST\n";
+            // Заявленный битрейт дорожки важнее посчитанного по сегментам
+            long average = totalDuration > 0 ? Math.round(totalBytes * 8 / totalDuration) : 0;
+            this.peakBandwidth = track.getBandwidth() != null ? Math.max(track.getBandwidth(), peak) : peak;
+            this.averageBandwidth = track.getBandwidth() != null ? track.getBandwidth() : average;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.StoredBlob;
+import com.example.siamLacorns.repository.ActorRepository;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальные копии постеров и фото актёров с CDN TMDB (tmdb.image.base).
+ * После импорта или изменения лакорна его внешние картинки скачиваются в фоне
+ * (image.mirror.concurrency потоков, очередь на image.mirror.queue-capacity мест)
+ * в BlobStorageService, а URL в базе заменяются на /img/{hash}.
+ * Сбои сети, 429 и 5xx повторяются с экспоненциальной задержкой; 4xx и не-картинки
+ * запоминаются на image.mirror.failure-ttl. То, что не поместилось в очередь или исчерпало
+ * попытки, подбирает периодический проход по базе - он же переносит каталог, импортированный раньше.
+ * Единица работы - URL: один и тот же постер или актёр у нескольких лакорнов скачивается один раз.
+ */
+@Service
+public class ImageMirrorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageMirrorService.class);
+
+    @Autowired
+    private LacornRepository lacornRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${image.mirror.enabled:true}")
+    private boolean enabled;
+
+    // Зеркалируются только URL с этим префиксом
+    @Value("${tmdb.image.base:https://image.tmdb.org/t/p}")
+    private String sourcePrefix;
+
+    @Value("${image.mirror.concurrency:4}")
+    private int concurrency;
+
+    @Value("${image.mirror.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${image.mirror.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${image.mirror.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${image.mirror.max-backoff:1m}")
+    private Duration maxBackoff;
+
+    @Value("${image.mirror.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${image.mirror.request-timeout:30s}")
+    private Duration requestTimeout;
+
+    @Value("${image.mirror.max-size:10MB}")
+    private DataSize maxSize;
+
+    @Value("${image.mirror.failure-ttl:24h}")
+    private Duration failureTtl;
+
+    @Value("${image.mirror.sweep-batch-size:200}")
+    private int sweepBatchSize;
+
+    private HttpClient httpClient;
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+
+    // URL, которые CDN отверг окончательно (404, не картинка, слишком большой файл): до истечения не пробуем
+    private Cache<String, String> failures;
+
+    // URL, уже отданные в пул на этом узле
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger mirrored = new AtomicInteger();
+    private final AtomicInteger retried = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        failures = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(failureTtl)
+                .build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "image-mirror-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Недокачанные картинки остаются внешними и будут подобраны следующим проходом
+        executor.shutdownNow();
+    }
+
+    // Удалённые события пропускаем: картинки скачивает узел, на котором лакорн изменили.
+    // Даже чтение URL идёт в пуле, чтобы не добавлять запросов и задержки самой записи
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        if (!enabled || event.isRemote() || event.isDelete()) {
+            return;
+        }
+        try {
+            executor.execute(() -> mirrorLacorn(event.getLacornId()));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Image mirror queue is full, lacorn {} left for the next sweep", event.getLacornId());
+        }
+    }
+
+    // Ставит в очередь внешние постер и фото актёров лакорна; возвращает, сколько URL поставлено
+    public int mirrorLacorn(Long lacornId) {
+        Set<String> urls = new LinkedHashSet<>();
+        lacornRepository.findPosterUrlById(lacornId).ifPresent(urls::add);
+        for (Object[] link : lacornRepository.findActorLinksByLacornId(lacornId)) {
+            urls.add((String) link[3]);
+        }
+        int scheduled = 0;
+        for (String url : urls) {
+            if (schedule(url)) {
+                scheduled++;
+            }
+        }
+        return scheduled;
+    }
+
+    // Добирает всё, что осталось на внешнем CDN: старый каталог, переполнение очереди, исчерпанные попытки
+    @Scheduled(fixedDelayString = "${image.mirror.sweep-interval-ms:3600000}",
+            initialDelayString = "${image.mirror.sweep-initial-delay-ms:120000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        PageRequest batch = PageRequest.of(0, sweepBatchSize);
+        Set<String> urls = new LinkedHashSet<>(lacornRepository.findPosterUrlsStartingWith(sourcePrefix, batch));
+        urls.addAll(actorRepository.findPhotoUrlsStartingWith(sourcePrefix, batch));
+        int scheduled = 0;
+        for (String url : urls) {
+            if (schedule(url)) {
+                scheduled++;
+            }
+        }
+        if (scheduled > 0) {
+            logger.info("Image mirror sweep scheduled {} external images", scheduled);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("inFlight", inFlight.size());
+        result.put("queued", executor.getQueue().size());
+        result.put("mirrored", mirrored.get());
+        result.put("retried", retried.get());
+        result.put("failed", failed.get());
+        result.put("rejectedUrls", failures.estimatedSize());
+        return result;
+    }
+
+    private boolean schedule(String url) {
+        if (url == null || !url.startsWith(sourcePrefix) || failures.getIfPresent(url) != null
+                || !inFlight.add(url)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    mirror(url);
+                } finally {
+                    inFlight.remove(url);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Очередь полна: URL останется внешним до следующего прохода
+            inFlight.remove(url);
+            logger.debug("Image mirror queue is full, {} left for the next sweep", url);
+            return false;
+        }
+    }
+
+    private void mirror(String url) {
+        StoredBlob blob;
+        try {
+            blob = download(url);
+        } catch (PermanentFailure | ValidationException e) {
+            failures.put(url, e.getMessage());
+            failed.incrementAndGet();
+            logger.warn("Image {} will not be mirrored: {}", url, e.getMessage());
+            return;
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            logger.warn("Image {} not mirrored after {} attempts: {}", url, maxAttempts, e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            rewrite(url, blob.getHash());
+            mirrored.incrementAndGet();
+        } catch (RuntimeException e) {
+            blobStorageService.release(blob.getHash());
+            failed.incrementAndGet();
+            logger.warn("Could not point {} at mirrored blob {}: {}", url, blob.getHash(), e.getMessage());
+        }
+    }
+
+    /**
+     * Скачивает картинку потоком прямо в хранилище блобов. Повторяются сетевые ошибки, 408, 429 и 5xx:
+     * задержка удваивается от initial-backoff до max-backoff, Retry-After сервера учитывается,
+     * случайная составляющая не даёт всем потокам ударить в CDN одновременно.
+     */
+    private StoredBlob download(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "image/*")
+                .GET()
+                .build();
+        Duration backoff = initialBackoff;
+        for (int attempt = 1; ; attempt++) {
+            Duration current = backoff;
+            Duration delay = current;
+            try {
+                HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    int status = response.statusCode();
+                    if (status == 200) {
+                        String contentType = response.headers().firstValue("Content-Type")
+                                .map(value -> value.split(";")[0].trim().toLowerCase(Locale.ROOT))
+                                .orElse("");
+                        if (!contentType.startsWith("image/")) {
+                            throw new PermanentFailure("unexpected Content-Type '" + contentType + "'");
+                        }
+                        return blobStorageService.store(body, contentType, maxSize.toBytes());
+                    }
+                    if (status != 408 && status != 429 && status < 500) {
+                        throw new PermanentFailure("HTTP " + status);
+                    }
+                    if (attempt >= maxAttempts) {
+                        throw new IOException("HTTP " + status);
+                    }
+                    delay = retryAfter(response).filter(retryAfter -> retryAfter.compareTo(current) > 0).orElse(current);
+                }
+            } catch (IOException e) {
+                if (e instanceof PermanentFailure || attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.debug("Image {} attempt {} failed: {}", url, attempt, e.getMessage());
+            }
+            retried.incrementAndGet();
+            long millis = Math.min(delay.toMillis(), maxBackoff.toMillis());
+            Thread.sleep(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+            backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+        }
+    }
+
+    private static Optional<Duration> retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").flatMap(value -> {
+            try {
+                return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+            } catch (NumberFormatException e) {
+                // HTTP-дата вместо секунд - обходимся своей задержкой
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Заменяет url на /img/{hash} у всех постеров и актёров, где он ещё стоит.
+     * Каждая строка держит свою ссылку на блоб: ссылка от store() достаётся первой строке,
+     * остальным берутся дополнительные, а если url уже успели заменить - ссылка возвращается.
+     */
+    private void rewrite(String url, String hash) {
+        String localUrl = ImageService.url(hash);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> lacornIds = lacornRepository.findIdsByImageUrl(url);
+            int rows = lacornRepository.replacePosterUrl(url, localUrl) + actorRepository.replacePhotoUrl(url, localUrl);
+            if (rows == 0) {
+                blobStorageService.release(hash);
+            }
+            for (int i = 1; i < rows; i++) {
+                blobStorageService.acquire(hash);
+            }
+            lacornIds.forEach(id -> eventPublisher.publishEvent(LacornChangedEvent.upsert(id)));
+        });
+        logger.debug("Mirrored {} as {}", url, localUrl);
+    }
+
+    // Ответ CDN, который повторять бессмысленно
+    private static final class PermanentFailure extends IOException {
+
+        PermanentFailure(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.StoredBlob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Уменьшенные и пережатые копии картинок из BlobStorageService (постеры, фото актёров, аватары).
+ * Ширина округляется вверх до одной из image.widths, чтобы число производных было ограничено;
+ * производная создаётся при первом запросе и лежит в image.cache.dir. Дисковый кэш ограничен
+ * суммарным размером (image.cache.maximum-bytes): индекс - Caffeine, вытесненные файлы удаляются.
+ * Caffeine же гарантирует, что одну производную при наплыве запросов делает один поток.
+ * WebP и AVIF пишутся только если в classpath есть соответствующий ImageIO-плагин, иначе - JPEG.
+ */
+@Service
+public class ImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageService.class);
+
+    public static final String URL_PREFIX = "/img/";
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Value("${image.cache.dir:image-cache}")
+    private String cacheDir;
+
+    @Value("${image.cache.maximum-bytes:1GB}")
+    private DataSize maximumBytes;
+
+    @Value("${image.widths:92,154,185,342,500,780,1280}")
+    private String widths;
+
+    @Value("${image.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    // Декодирование и масштабирование нагружают CPU и память: не больше стольких сразу
+    @Value("${image.max-concurrent:4}")
+    private int maxConcurrent;
+
+    // Защита от «пиксельных бомб»: небольшой файл может объявить огромные размеры и съесть всю память при декодировании
+    @Value("${image.max-pixels:40000000}")
+    private long maxPixels;
+
+    private Path root;
+    private int[] allowedWidths;
+    private Semaphore permits;
+    private Cache<String, Long> derivatives;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Files.createDirectories(Paths.get(cacheDir).toAbsolutePath().normalize());
+        allowedWidths = Arrays.stream(widths.split(",")).map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+        permits = new Semaphore(maxConcurrent);
+        derivatives = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes.toBytes())
+                .weigher((String name, Long size) -> (int) Math.min(Integer.MAX_VALUE, size))
+                .removalListener((String name, Long size, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        deleteQuietly(root.resolve(name));
+                    }
+                })
+                .build();
+        loadExisting();
+    }
+
+    public static String url(String hash) {
+        return URL_PREFIX + hash;
+    }
+
+    // Ключ блоба из URL вида /img/{hash}; прочие URL (TMDB, /uploads) - пусто
+    public static Optional<String> hashFromUrl(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return Optional.empty();
+        }
+        String hash = url.substring(URL_PREFIX.length());
+        return BlobStorageService.isHash(hash) ? Optional.of(hash) : Optional.empty();
+    }
+
+    /**
+     * Производная картинки key шириной не больше width (null - исходная, но не шире наибольшей из image.widths)
+     * в формате format.
+     * format = null - PNG для PNG-исходников (прозрачность), иначе JPEG; недоступный формат тоже заменяется на JPEG.
+     */
+    public Derivative derivative(String key, Integer width, Format format) {
+        if (width != null && width <= 0) {
+            throw new ValidationException("Ширина должна быть положительной");
+        }
+        StoredBlob blob = blobStorageService.find(key);
+        if (blob.getContentType() == null || !blob.getContentType().startsWith("image/")) {
+            throw new ResourceNotFoundException("Изображение не найдено");
+        }
+        Format target = format != null ? format
+                : MediaType.IMAGE_PNG_VALUE.equals(blob.getContentType()) ? Format.PNG : Format.JPEG;
+        if (!target.writable) {
+            target = Format.JPEG;
+        }
+        int snapped = width != null ? snapWidth(width) : 0;
+        String name = key + "_" + (snapped > 0 ? "w" + snapped : "orig") + "." + target.extension;
+        Format resolved = target;
+        try {
+            long size = derivatives.get(name, ignored -> render(key, snapped, resolved, name));
+            Path path = root.resolve(name);
+            if (!Files.exists(path)) {
+                // Файл вытеснили между поиском в индексе и ответом - создаём заново
+                derivatives.invalidate(name);
+                size = derivatives.get(name, ignored -> render(key, snapped, resolved, name));
+            }
+            return new Derivative(path, size, target.mediaType, "\"" + name + "\"");
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("Не удалось подготовить изображение " + key, e.getCause());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("derivatives", derivatives.estimatedSize());
+        result.put("bytes", derivatives.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        result.put("maximumBytes", maximumBytes.toBytes());
+        result.put("formats", Arrays.stream(Format.values())
+                .filter(format -> format.writable)
+                .map(format -> format.extension)
+                .collect(Collectors.toList()));
+        return result;
+    }
+
+    // Наименьшая разрешённая ширина не меньше запрошенной
+    private int snapWidth(int width) {
+        for (int allowed : allowedWidths) {
+            if (allowed >= width) {
+                return allowed;
+            }
+        }
+        return allowedWidths[allowedWidths.length - 1];
+    }
+
+    private long render(String key, int width, Format format, String name) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted while waiting for an image worker", e));
+        }
+        Path temp = null;
+        try {
+            int targetWidth = width > 0 ? width : allowedWidths[allowedWidths.length - 1];
+            BufferedImage image = read(blobStorageService.path(key), targetWidth, maxPixels);
+            if (image.getWidth() > targetWidth) {
+                image = scale(image, targetWidth);
+            }
+            if (format != Format.PNG && image.getColorModel().hasAlpha()) {
+                image = flatten(image);
+            }
+            temp = Files.createTempFile(root, name, ".part");
+            write(image, format, temp);
+            Path target = root.resolve(name);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            permits.release();
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    // Крупный исходник читается с прореживанием строк и столбцов: в памяти не больше чем вдвое шире цели.
+    // Размеры проверяются по заголовку до декодирования
+    private static BufferedImage read(Path source, int width, long maxPixels) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new ValidationException("Файл не является изображением");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int sourceWidth = reader.getWidth(0);
+                if ((long) sourceWidth * reader.getHeight(0) > maxPixels) {
+                    throw new ValidationException("Изображение больше " + maxPixels + " пикселей");
+                }
+                int subsampling = Math.max(1, sourceWidth / (width * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Последовательное уменьшение вдвое с билинейной интерполяцией - почти как бикубика, но быстрее
+    private static BufferedImage scale(BufferedImage image, int width) {
+        BufferedImage current = image;
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        while (current.getWidth() > width) {
+            int nextWidth = Math.max(width, current.getWidth() / 2);
+            int nextHeight = Math.max(1, (int) Math.round((double) current.getHeight() * nextWidth / current.getWidth()));
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    // JPEG не поддерживает прозрачность: подложка белая
+    private static BufferedImage flatten(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private void write(BufferedImage image, Format format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByMIMEType(format.mediaType.toString()).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format != Format.PNG && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0 && param.getCompressionType() == null) {
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Индекс уже созданных производных после перезапуска, старые первыми
+    private void loadExisting() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(root)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparing(ImageService::lastModified));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".part")) {
+                deleteQuietly(file);
+            } else {
+                derivatives.put(name, Files.size(file));
+            }
+        }
+        logger.info("Image cache: {} derivatives in {}", derivatives.estimatedSize(), root);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    public enum Format {
+        JPEG("jpg", MediaType.IMAGE_JPEG),
+        PNG("png", MediaType.IMAGE_PNG),
+        WEBP("webp", MediaType.parseMediaType("image/webp")),
+        AVIF("avif", MediaType.parseMediaType("image/avif"));
+
+        private final String extension;
+        private final MediaType mediaType;
+        private final boolean writable;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+            this.writable = ImageIO.getImageWritersByMIMEType(mediaType.toString()).hasNext();
+        }
+
+        public MediaType getMediaType() { return mediaType; }
+
+        public boolean isWritable() { return writable; }
+
+        public static Format parse(String value) {
+            String normalized = value.toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                if (format.extension.equals(normalized) || format.name().equalsIgnoreCase(normalized)) {
+                    return format;
+                }
+            }
+            throw new ValidationException("Неизвестный формат изображения: " + value);
+        }
+    }
+
+    public record Derivative(Path path, long size, MediaType contentType, String etag) {
+    }
+}
@@ -0,0 +1,688 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.dto.IngestJobDTO;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.EpisodeMediaTrack;
+import com.example.siamLacorns.model.EpisodeSegment;
+import com.example.siamLacorns.model.IngestJob;
+import com.example.siamLacorns.repository.EpisodeMediaTrackRepository;
+import com.example.siamLacorns.repository.EpisodeRepository;
+import com.example.siamLacorns.repository.EpisodeSegmentRepository;
+import com.example.siamLacorns.repository.IngestJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Загрузка видео эпизода и его фоновая обработка.
+ * Файл принимается фрагментами (Content-Range) прямо в ingest.work-dir, без буферизации в памяти,
+ * SHA-256 считается по ходу загрузки; оборванную загрузку можно продолжить с receivedBytes.
+ * Готовый файл переезжает в BlobStorageService: повторная загрузка того же файла (или только его хеша
+ * в createUpload) не хранится и не обрабатывается второй раз. Полностью загруженное задание
+ * попадает в ограниченную очередь (ingest.workers потоков, ingest.queue-capacity мест):
+ * не поместившиеся задания остаются QUEUED в базе и подбираются планировщиком.
+ * Воркер определяет длительность, снимает превью и нарезает дорожки через MediaProcessor:
+ * лестницу видео - только если у эпизода её ещё нет, звук - как аудиодорожку озвучки задания.
+ * Взятое в обработку задание помечается узлом-владельцем, который раз в ingest.heartbeat-interval-ms
+ * подтверждает heartbeat; в очередь возвращаются только задания, чей heartbeat старше
+ * ingest.heartbeat-timeout, а результат сохраняется, только если задание всё ещё принадлежит узлу.
+ */
+@Service
+public class IngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestService.class);
+
+    private static final String SOURCE_FILE = "source";
+    private static final double PREPARE_SHARE = 0.05;
+
+    @Autowired
+    private IngestJobRepository jobRepository;
+
+    @Autowired
+    private EpisodeRepository episodeRepository;
+
+    @Autowired
+    private EpisodeMediaTrackRepository trackRepository;
+
+    @Autowired
+    private EpisodeSegmentRepository segmentRepository;
+
+    @Autowired
+    private EpisodeMediaService episodeMediaService;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private MediaProcessor mediaProcessor;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ingest.work-dir:ingest}")
+    private String workDir;
+
+    @Value("${ingest.thumbnail-dir:uploads/thumbnails}")
+    private String thumbnailDir;
+
+    @Value("${ingest.upload.max-size:20GB}")
+    private DataSize maxUploadSize;
+
+    @Value("${ingest.upload.expire-after:24h}")
+    private Duration uploadExpireAfter;
+
+    @Value("${ingest.workers:2}")
+    private int workers;
+
+    @Value("${ingest.queue-capacity:16}")
+    private int queueCapacity;
+
+    // Ступени видео: высота:битрейт в кбит/с
+    @Value("${ingest.ladder:1080:5000,720:2800,480:1400,360:800}")
+    private String ladder;
+
+    @Value("${ingest.audio-bitrate-kbps:128}")
+    private int audioBitrateKbps;
+
+    // Задание без heartbeat дольше этого считается брошенным; должно быть заметно больше интервала heartbeat
+    @Value("${ingest.heartbeat-timeout:2m}")
+    private Duration heartbeatTimeout;
+
+    // Идентификатор узла-владельца PROCESSING-заданий; новый при каждом запуске
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Path workRoot;
+    private Path thumbnailRoot;
+    private List<MediaProcessor.TrackSpec> rungs;
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+
+    // Задания, уже отданные в пул на этом узле
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Незавершённые загрузки этого узла: хеш уже принятой части файла
+    private final ConcurrentHashMap<Long, UploadState> uploads = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        workRoot = Files.createDirectories(Paths.get(workDir).toAbsolutePath().normalize());
+        thumbnailRoot = Files.createDirectories(Paths.get(thumbnailDir).toAbsolutePath().normalize());
+        rungs = parseLadder(ladder);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "media-ingest-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Прерванные задания остаются PROCESSING и вернутся в очередь, когда устареет их heartbeat
+        executor.shutdownNow();
+    }
+
+    /**
+     * Новое задание загрузки. sha256 (необязательный) - хеш файла: если этот файл уже обработан
+     * для той же озвучки эпизода, возвращается прежнее задание; если он уже есть в хранилище,
+     * задание сразу встаёт в очередь и байты передавать не нужно.
+     */
+    public IngestJobDTO createUpload(Long episodeId, long totalBytes, Episode.VoiceoverType voiceover,
+                                     String fileName, String sha256) {
+        if (totalBytes <= 0 || totalBytes > maxUploadSize.toBytes()) {
+            throw new ValidationException("Размер файла должен быть от 1 байта до " + maxUploadSize);
+        }
+        Episode episode = episodeRepository.findById(episodeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Эпизод не найден"));
+
+        if (sha256 != null) {
+            String hash = sha256.toLowerCase(Locale.ROOT);
+            if (!BlobStorageService.isHash(hash)) {
+                throw new ValidationException("sha256 должен быть SHA-256 в hex");
+            }
+            Optional<IngestJob> processed = findCompletedDuplicate(episodeId, voiceover, hash);
+            if (processed.isPresent()) {
+                return new IngestJobDTO(processed.get());
+            }
+            if (blobStorageService.acquire(hash)) {
+                IngestJob job = new IngestJob(episode, voiceover, fileName, totalBytes);
+                job.setSourceHash(hash);
+                job.setReceivedBytes(totalBytes);
+                job.setStatus(IngestJob.Status.QUEUED);
+                job = jobRepository.save(job);
+                dispatch(job.getId());
+                return new IngestJobDTO(job);
+            }
+        }
+
+        IngestJob job = jobRepository.save(new IngestJob(episode, voiceover, fileName, totalBytes));
+        try {
+            Files.createDirectories(jobDir(job.getId()));
+            Files.createFile(sourcePath(job.getId()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось создать файл загрузки", e);
+        }
+        return new IngestJobDTO(job);
+    }
+
+    /**
+     * Дописывает фрагмент [start, start + length) из тела запроса. Фрагмент должен начинаться
+     * ровно с receivedBytes; если соединение оборвалось, принятая часть всё равно засчитывается.
+     */
+    public IngestJobDTO appendChunk(Long episodeId, Long jobId, long start, long length, long total, InputStream body)
+            throws IOException {
+        UploadState state = uploads.computeIfAbsent(jobId, id -> new UploadState());
+        if (!state.lock.tryLock()) {
+            throw new ValidationException("Фрагмент этой загрузки уже принимается");
+        }
+        try {
+            IngestJob job = findJob(episodeId, jobId);
+            if (job.getStatus() != IngestJob.Status.UPLOADING) {
+                uploads.remove(jobId);
+                throw new ValidationException("Файл уже загружен");
+            }
+            if (total != job.getTotalBytes()) {
+                throw new ValidationException("Размер файла не совпадает с заявленным: " + job.getTotalBytes());
+            }
+            if (start != job.getReceivedBytes()) {
+                throw new ValidationException("Ожидался фрагмент с позиции " + job.getReceivedBytes());
+            }
+            if (length <= 0 || start + length > total) {
+                throw new ValidationException("Некорректный диапазон фрагмента");
+            }
+            // После перезапуска или сбоя хеш уже принятой части пересчитывается по файлу
+            if (state.digest == null || state.offset != start) {
+                state.digest = digestPrefix(sourcePath(jobId), start);
+                state.offset = start;
+            }
+
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(sourcePath(jobId), StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(new DigestInputStream(body, state.digest))) {
+                while (written < length) {
+                    long transferred = channel.transferFrom(in, start + written, length - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+                state.offset = start + written;
+            } catch (IOException | RuntimeException e) {
+                state.digest = null;
+                throw e;
+            } finally {
+                if (written > 0 && jobRepository.advanceUpload(jobId, IngestJob.Status.UPLOADING, start,
+                        start + written, LocalDateTime.now()) == 0) {
+                    logger.warn("Concurrent chunk for ingest job {} at offset {}", jobId, start);
+                    state.digest = null;
+                }
+            }
+
+            if (start + written == total && state.digest != null) {
+                uploads.remove(jobId);
+                completeUpload(job, HexFormat.of().formatHex(state.digest.digest()));
+            }
+            return new IngestJobDTO(findJob(episodeId, jobId));
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    // Файл целиком: в хранилище блобов, затем в очередь - или сразу COMPLETED, если такой уже обработан
+    private void completeUpload(IngestJob job, String hash) throws IOException {
+        Long jobId = job.getId();
+        blobStorageService.adopt(sourcePath(jobId), hash, contentType(job.getFileName()));
+        jobRepository.updateSourceHash(jobId, hash, LocalDateTime.now());
+        deleteQuietly(jobDir(jobId));
+        enqueueUploaded(job, hash);
+    }
+
+    // Загруженный и принятый в хранилище файл: в очередь или сразу COMPLETED, если такой уже обработан
+    private void enqueueUploaded(IngestJob job, String hash) {
+        Long jobId = job.getId();
+        if (findCompletedDuplicate(job.getEpisode().getId(), job.getVoiceover(), hash).isPresent()) {
+            // Условный переход: ссылку на блоб освобождает только тот, кто закрыл задание
+            if (jobRepository.transition(jobId, IngestJob.Status.UPLOADING, IngestJob.Status.COMPLETED,
+                    LocalDateTime.now()) == 1) {
+                jobRepository.finish(jobId, IngestJob.Status.COMPLETED, 100, "Этот файл уже обработан", LocalDateTime.now());
+                blobStorageService.release(hash);
+            }
+            return;
+        }
+        if (jobRepository.transition(jobId, IngestJob.Status.UPLOADING, IngestJob.Status.QUEUED,
+                LocalDateTime.now()) == 1) {
+            dispatch(jobId);
+        }
+    }
+
+    public IngestJobDTO getJob(Long episodeId, Long jobId) {
+        return new IngestJobDTO(findJob(episodeId, jobId));
+    }
+
+    public List<IngestJobDTO> getJobs(Long episodeId) {
+        return jobRepository.findByEpisodeIdOrderByIdDesc(episodeId).stream()
+                .map(IngestJobDTO::new)
+                .collect(Collectors.toList());
+    }
+
+    // Задания, чей владелец упал или остановлен (на любом узле), снова в очередь; живые узлы не затрагиваются
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ingest.heartbeat-interval-ms:30000}")
+    public void resumeInterrupted() {
+        LocalDateTime now = LocalDateTime.now();
+        int requeued = jobRepository.requeueStale(IngestJob.Status.PROCESSING, IngestJob.Status.QUEUED,
+                now.minus(heartbeatTimeout), now);
+        if (requeued > 0) {
+            logger.info("Requeued {} interrupted ingest jobs", requeued);
+        }
+        dispatchQueued();
+    }
+
+    // Подтверждает, что задания этого узла ещё обрабатываются
+    @Scheduled(fixedDelayString = "${ingest.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        if (!inFlight.isEmpty()) {
+            jobRepository.heartbeat(nodeId, IngestJob.Status.PROCESSING, LocalDateTime.now());
+        }
+    }
+
+    // Подбирает задания, не поместившиеся в очередь пула
+    @Scheduled(fixedDelayString = "${ingest.dispatch-interval-ms:5000}")
+    public void dispatchQueued() {
+        int free = queueCapacity - executor.getQueue().size();
+        if (free <= 0) {
+            return;
+        }
+        for (Long jobId : jobRepository.findIdsByStatus(IngestJob.Status.QUEUED, PageRequest.of(0, free))) {
+            dispatch(jobId);
+        }
+    }
+
+    // Брошенные загрузки: задание закрывается, файл удаляется, ссылка на блоб исходника освобождается.
+    // Файл, целиком принятый в хранилище до сбоя узла (sourceHash есть, байты все), встаёт в очередь
+    @Scheduled(fixedDelayString = "${ingest.upload.cleanup-interval-ms:3600000}")
+    public void expireStaleUploads() {
+        LocalDateTime before = LocalDateTime.now().minus(uploadExpireAfter);
+        for (Long jobId : jobRepository.findIdsByStatusUpdatedBefore(IngestJob.Status.UPLOADING, before)) {
+            IngestJob job = jobRepository.findById(jobId).orElse(null);
+            if (job == null) {
+                continue;
+            }
+            uploads.remove(jobId);
+            if (job.getSourceHash() != null && job.getTotalBytes().equals(job.getReceivedBytes())) {
+                logger.info("Resuming ingest job {} whose upload completed before the node stopped", jobId);
+                enqueueUploaded(job, job.getSourceHash());
+                continue;
+            }
+            if (jobRepository.transition(jobId, IngestJob.Status.UPLOADING, IngestJob.Status.FAILED,
+                    LocalDateTime.now()) == 1) {
+                jobRepository.finish(jobId, IngestJob.Status.FAILED, 0, "Загрузка не была завершена", LocalDateTime.now());
+                releaseSource(job);
+            }
+        }
+    }
+
+    private void dispatch(Long jobId) {
+        if (!inFlight.add(jobId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(jobId);
+                } finally {
+                    inFlight.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(jobId);
+            logger.debug("Ingest queue is full, job {} stays queued", jobId);
+        }
+    }
+
+    private void process(Long jobId) {
+        // QUEUED -> PROCESSING: задание забирает ровно один воркер, узел записывается владельцем
+        if (jobRepository.claim(jobId, IngestJob.Status.QUEUED, IngestJob.Status.PROCESSING,
+                nodeId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        IngestJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        Long episodeId = job.getEpisode().getId();
+        String outputPrefix = "episodes/" + episodeId + "/" + jobId;
+        Path outputRoot = episodeMediaService.storagePath(outputPrefix)
+                .orElseThrow(() -> new IllegalStateException("Invalid storage path " + outputPrefix));
+        ProgressReporter progress = new ProgressReporter(jobId);
+        long started = System.nanoTime();
+        try {
+            Path source = job.getSourceHash() != null ? blobStorageService.path(job.getSourceHash()) : sourcePath(jobId);
+            MediaProcessor.MediaProbe probe = mediaProcessor.probe(source);
+            String thumbnailUrl = extractThumbnail(source, probe, episodeId);
+            progress.report(PREPARE_SHARE);
+
+            // Предварительная проверка без блокировки; окончательно лестница сверяется в saveTracks
+            List<MediaProcessor.TrackSpec> specs = new ArrayList<>();
+            if (!trackRepository.existsByEpisodeIdAndKind(episodeId, EpisodeMediaTrack.Kind.VIDEO)) {
+                specs.addAll(videoLadder(probe));
+            }
+            if (probe.hasAudio()) {
+                specs.add(new MediaProcessor.TrackSpec(EpisodeMediaTrack.Kind.AUDIO, null, audioBitrateKbps));
+            }
+
+            List<PackagedOutput> outputs = new ArrayList<>();
+            double share = (1 - PREPARE_SHARE) / Math.max(1, specs.size());
+            for (int i = 0; i < specs.size(); i++) {
+                MediaProcessor.TrackSpec spec = specs.get(i);
+                String dirName = trackDirName(spec);
+                Path dir = Files.createDirectories(outputRoot.resolve(dirName));
+                double from = PREPARE_SHARE + share * i;
+                MediaProcessor.PackagedTrack packaged = mediaProcessor.packageTrack(source, probe, spec, dir,
+                        fraction -> progress.report(from + share * fraction));
+                outputs.add(new PackagedOutput(spec, outputPrefix + "/" + dirName, packaged));
+            }
+
+            // Завершение и дорожки - одной транзакцией: если задание уже вернули в очередь
+            // (узел не подавал heartbeat), дорожки не сохраняются и не дублируют работу нового владельца
+            List<PackagedOutput> dropped = transactionTemplate.execute(status -> {
+                if (jobRepository.finishOwned(jobId, nodeId, IngestJob.Status.PROCESSING, IngestJob.Status.COMPLETED,
+                        100, null, LocalDateTime.now()) == 0) {
+                    return null;
+                }
+                return saveTracks(episodeId, job.getVoiceover(), probe, thumbnailUrl, outputs);
+            });
+            if (dropped == null) {
+                logger.warn("Ingest job {} was reclaimed by another node, result discarded", jobId);
+                return;
+            }
+            for (PackagedOutput output : dropped) {
+                episodeMediaService.storagePath(output.pathPrefix()).ifPresent(IngestService::deleteQuietly);
+            }
+            releaseSource(job);
+            logger.info("Ingest job {} for episode {} completed in {} s: {} tracks", jobId, episodeId,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started), outputs.size() - dropped.size());
+        } catch (Exception e) {
+            deleteQuietly(outputRoot);
+            if (Thread.currentThread().isInterrupted()) {
+                // Остановка приложения: задание остаётся PROCESSING и будет повторено после запуска
+                logger.info("Ingest job {} interrupted", jobId);
+                return;
+            }
+            logger.error("Ingest job {} for episode {} failed", jobId, episodeId, e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            // Исходник освобождает только владелец: у переданного другому узлу задания он ещё нужен
+            if (jobRepository.finishOwned(jobId, nodeId, IngestJob.Status.PROCESSING, IngestJob.Status.FAILED,
+                    progress.last, message.substring(0, Math.min(message.length(), 1000)), LocalDateTime.now()) == 1) {
+                releaseSource(job);
+            }
+        }
+    }
+
+    // Исходник нужен только на время обработки: без ссылок его удалит сборщик блобов после grace-period,
+    // а повторы того же файла отсекаются по sourceHash завершённых заданий
+    private void releaseSource(IngestJob job) {
+        if (job.getSourceHash() != null) {
+            blobStorageService.release(job.getSourceHash());
+        }
+        deleteQuietly(jobDir(job.getId()));
+    }
+
+    private Optional<IngestJob> findCompletedDuplicate(Long episodeId, Episode.VoiceoverType voiceover, String hash) {
+        return jobRepository.findFirstByEpisodeIdAndVoiceoverAndSourceHashAndStatus(
+                episodeId, voiceover, hash, IngestJob.Status.COMPLETED);
+    }
+
+    private static MessageDigest digestPrefix(Path file, long length) throws IOException {
+        MessageDigest digest = BlobStorageService.newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Upload file is shorter than received bytes: " + file);
+                }
+                digest.update(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        return digest;
+    }
+
+    private static String contentType(String fileName) {
+        return fileName != null
+                ? MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    // Кадр примерно на 10% длительности, но не дальше минуты от начала; без превью эпизод всё равно публикуется
+    private String extractThumbnail(Path source, MediaProcessor.MediaProbe probe, Long episodeId) {
+        double position = probe.durationSeconds() != null ? Math.min(probe.durationSeconds() * 0.1, 60) : 0;
+        String fileName = "episode_" + episodeId + ".jpg";
+        try {
+            mediaProcessor.thumbnail(source, position, thumbnailRoot.resolve(fileName));
+            return "/uploads/thumbnails/" + fileName;
+        } catch (IOException e) {
+            logger.warn("Could not extract thumbnail for episode {}: {}", episodeId, e.getMessage());
+            return null;
+        }
+    }
+
+    // Под блокировкой строки эпизода: если параллельное задание уже сохранило лестницу видео,
+    // свои VIDEO-дорожки не сохраняются и возвращаются, чтобы удалить их файлы после коммита
+    private List<PackagedOutput> saveTracks(Long episodeId, Episode.VoiceoverType voiceover,
+                                            MediaProcessor.MediaProbe probe, String thumbnailUrl,
+                                            List<PackagedOutput> outputs) {
+        Episode episode = episodeRepository.findForUpdate(episodeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Эпизод не найден"));
+        boolean hasLadder = trackRepository.existsByEpisodeIdAndKind(episodeId, EpisodeMediaTrack.Kind.VIDEO);
+        List<PackagedOutput> dropped = new ArrayList<>();
+        for (PackagedOutput output : outputs) {
+            if (hasLadder && output.spec().kind() == EpisodeMediaTrack.Kind.VIDEO) {
+                dropped.add(output);
+                continue;
+            }
+            List<MediaProcessor.SegmentFile> segments = output.packaged().segments();
+            if (segments.isEmpty()) {
+                continue;
+            }
+            MediaProcessor.TrackSpec spec = output.spec();
+            EpisodeMediaTrack track = new EpisodeMediaTrack(episode, spec.kind());
+            if (spec.kind() == EpisodeMediaTrack.Kind.AUDIO) {
+                // Повторная загрузка озвучки заменяет её дорожку; сегменты удаляет база (ON DELETE CASCADE)
+                trackRepository.deleteAll(trackRepository.findByEpisodeIdAndKindAndVoiceover(
+                        episodeId, EpisodeMediaTrack.Kind.AUDIO, voiceover));
+                track.setVoiceover(voiceover);
+                track.setLanguage(language(voiceover));
+            } else {
+                track.setHeight(spec.height() != null ? spec.height() : probe.height());
+                track.setWidth(scaledWidth(probe, track.getHeight()));
+            }
+            track.setBandwidth(spec.bitrateKbps() != null ? spec.bitrateKbps() * 1000L : null);
+            track.setCodecs(output.packaged().codecs());
+            trackRepository.save(track);
+
+            List<EpisodeSegment> rows = new ArrayList<>(segments.size());
+            for (MediaProcessor.SegmentFile segment : segments) {
+                rows.add(new EpisodeSegment(track, segment.sequence(), segment.duration(),
+                        output.pathPrefix() + "/" + segment.path().getFileName(), segment.sizeBytes()));
+            }
+            segmentRepository.saveAll(rows);
+        }
+
+        if (probe.durationSeconds() != null) {
+            episode.setDuration((int) Math.ceil(probe.durationSeconds() / 60));
+        }
+        if (thumbnailUrl != null) {
+            episode.setThumbnailUrl(thumbnailUrl);
+        }
+        // После коммита сбросит кэши плейлистов и карточек на всех узлах
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(episode.getLacorn().getId()));
+        return dropped;
+    }
+
+    // Ступени не выше исходника; если исходник ниже всех - одна ступень его высоты с наименьшим битрейтом
+    private List<MediaProcessor.TrackSpec> videoLadder(MediaProcessor.MediaProbe probe) {
+        if (probe.height() == null) {
+            return List.of(new MediaProcessor.TrackSpec(EpisodeMediaTrack.Kind.VIDEO, null, null));
+        }
+        List<MediaProcessor.TrackSpec> result = rungs.stream()
+                .filter(rung -> rung.height() <= probe.height())
+                .collect(Collectors.toList());
+        if (result.isEmpty()) {
+            MediaProcessor.TrackSpec lowest = rungs.get(rungs.size() - 1);
+            result.add(new MediaProcessor.TrackSpec(EpisodeMediaTrack.Kind.VIDEO,
+                    probe.height() / 2 * 2, lowest.bitrateKbps()));
+        }
+        return result;
+    }
+
+    private static List<MediaProcessor.TrackSpec> parseLadder(String value) {
+        List<MediaProcessor.TrackSpec> result = new ArrayList<>();
+        for (String rung : value.split(",")) {
+            String[] parts = rung.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("ingest.ladder: expected height:kbps, got " + rung);
+            }
+            result.add(new MediaProcessor.TrackSpec(EpisodeMediaTrack.Kind.VIDEO,
+                    Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())));
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("ingest.ladder is empty");
+        }
+        result.sort(Comparator.comparing(MediaProcessor.TrackSpec::height).reversed());
+        return List.copyOf(result);
+    }
+
+    private static String trackDirName(MediaProcessor.TrackSpec spec) {
+        if (spec.kind() == EpisodeMediaTrack.Kind.AUDIO) {
+            return "audio";
+        }
+        return spec.height() != null ? spec.height() + "p" : "source";
+    }
+
+    private static Integer scaledWidth(MediaProcessor.MediaProbe probe, Integer height) {
+        if (probe.width() == null || probe.height() == null || height == null || probe.height() == 0) {
+            return null;
+        }
+        return (int) Math.round((double) probe.width() * height / probe.height() / 2) * 2;
+    }
+
+    // Лакорны тайские: оригинальная дорожка - тайский
+    private static String language(Episode.VoiceoverType voiceover) {
+        if (voiceover == null) {
+            return null;
+        }
+        return switch (voiceover) {
+            case RUSSIAN_DUB -> "ru";
+            case ENGLISH_DUB -> "en";
+            case ORIGINAL_SUBBED -> "th";
+        };
+    }
+
+    private IngestJob findJob(Long episodeId, Long jobId) {
+        return jobRepository.findById(jobId)
+                .filter(job -> job.getEpisode().getId().equals(episodeId))
+                .orElseThrow(() -> new ResourceNotFoundException("Задание загрузки не найдено"));
+    }
+
+    private Path jobDir(Long jobId) {
+        return workRoot.resolve(Long.toString(jobId));
+    }
+
+    private Path sourcePath(Long jobId) {
+        return jobDir(jobId).resolve(SOURCE_FILE);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class UploadState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private MessageDigest digest;
+        // Сколько байтов файла уже учтено в digest
+        private long offset;
+    }
+
+    private record PackagedOutput(MediaProcessor.TrackSpec spec, String pathPrefix,
+                                  MediaProcessor.PackagedTrack packaged) {
+    }
+
+    // Пишет прогресс в базу только при смене целого процента
+    private final class ProgressReporter {
+        private final Long jobId;
+        private int last;
+
+        ProgressReporter(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        void report(double fraction) {
+            int percent = (int) Math.min(99, Math.max(0, fraction * 100));
+            if (percent > last) {
+                last = percent;
+                jobRepository.updateProgress(jobId, percent, LocalDateTime.now());
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.dto.LacornDTO;
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.LacornChangedEvent;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш карточки лакорна без пользовательской части (прогресс просмотра накладывается сверху).
+ * Сбрасывается после коммита любой записи, которая публикует LacornChangedEvent.
+ */
+@Component
+public class LacornDetailsCache {
+
+    @Autowired
+    private LacornRepository lacornRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${lacorn.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${lacorn.cache.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    private Cache<Long, LacornDTO> cache;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // null - лакорна нет; отсутствие не кэшируется
+    public LacornDTO get(Long id) {
+        return cache.get(id, this::load);
+    }
+
+    private LacornDTO load(Long id) {
+        return readOnlyTransaction.execute(status -> lacornRepository.findById(id)
+                .map(LacornDetailsCache::toCore)
+                .orElse(null));
+    }
+
+    // Коллекции копируются, чтобы в кэше не осталось ссылок на ленивые коллекции Hibernate
+    private static LacornDTO toCore(Lacorn lacorn) {
+        return new LacornDTO(lacorn).toBuilder()
+                .genres(copyOf(lacorn.getGenres()))
+                .productionCountries(copyOf(lacorn.getProductionCountries()))
+                .watchProgress(null)
+                .build();
+    }
+
+    private static <T> List<T> copyOf(List<T> source) {
+        return source != null ? Collections.unmodifiableList(new ArrayList<>(source)) : null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLacornChanged(LacornChangedEvent event) {
+        cache.invalidate(event.getLacornId());
+    }
+
+    @EventListener(InvalidationResyncEvent.class)
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.siamLacorns.service;
 
 import com.example.siamLacorns.dto.*;
+import com.example.siamLacorns.event.LacornChangedEvent;
 import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.example.siamLacorns.exception.ValidationException;
 import com.example.siamLacorns.model.Actor;
 import com.example.siamLacorns.model.Episode;
 import com.example.siamLacorns.model.Lacorn;
@@ -9,19 +11,47 @@ import com.example.siamLacorns.model.UserWatchHistory;
 import com.example.siamLacorns.repository.ActorRepository;
 import com.example.siamLacorns.repository.EpisodeRepository;
 import com.example.siamLacorns.repository.LacornRepository;
+import com.example.siamLacorns.repository.LacornSummary;
 import com.example.siamLacorns.repository.UserWatchHistoryRepository;
+import com.example.siamLacorns.search.CatalogFacetIndex;
+import com.example.siamLacorns.search.FacetFilter;
+import com.example.siamLacorns.search.LacornSearchIndex;
+import com.example.siamLacorns.search.TitleSuggester;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
+// Таймер на каждый публичный метод: siam.service{class, method, exception}, так же в UserService и TMDBIntegrationService
+@Timed("siam.service")
 public class LacornService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LacornService.class);
+
     @Autowired
     private LacornRepository lacornRepository;
 
@@ -34,6 +64,37 @@ public class LacornService {
     @Autowired
     private UserWatchHistoryRepository watchHistoryRepository;
 
+    @Autowired
+    private LacornSearchIndex searchIndex;
+
+    @Autowired
+    private TitleSuggester titleSuggester;
+
+    @Autowired
+    private CatalogFacetIndex facetIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private WatchProgressBuffer watchProgressBuffer;
+
+    @Autowired
+    private LacornDetailsCache lacornDetailsCache;
+
+    @Autowired
+    private HlsService hlsService;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    // false - каждый heartbeat сразу пишется одним upsert'ом, без буфера
+    @Value("${watch.progress.write-behind:true}")
+    private boolean watchProgressWriteBehind;
+
+    // Эпизод не переезжает между сериалами, поэтому связь эпизод -> лакорн можно держать в памяти
+    private final Map<Long, Long> lacornIdByEpisodeId = new ConcurrentHashMap<>();
+
     @Transactional
     public Lacorn createLacorn(Lacorn lacorn) {
         // Проверяем уникальность актёров перед сохранением
@@ -63,7 +124,10 @@ public class LacornService {
             lacorn.setActors(processedActors);
         }
 
-        return lacornRepository.save(lacorn);
+        acquirePoster(lacorn.getPosterUrl());
+        Lacorn savedLacorn = lacornRepository.save(lacorn);
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(savedLacorn.getId()));
+        return savedLacorn;
     }
 
     @Transactional
@@ -93,21 +157,40 @@ public class LacornService {
 
         // Удаляем лакорн
         lacornRepository.delete(lacorn);
+        eventPublisher.publishEvent(LacornChangedEvent.delete(id));
+        ImageService.hashFromUrl(lacorn.getPosterUrl()).ifPresent(blobStorageService::release);
 
         // Проверяем актёров и удаляем тех, у кого не осталось лакорнов
         for (Actor actor : actorsToCheck) {
             Actor refreshedActor = actorRepository.findById(actor.getId()).orElse(null);
             if (refreshedActor != null && refreshedActor.getLacorns().isEmpty()) {
                 actorRepository.delete(refreshedActor);
+                ImageService.hashFromUrl(refreshedActor.getPhotoUrl()).ifPresent(blobStorageService::release);
             }
         }
     }
 
+    // Постер /img/{hash} держит ссылку на блоб, иначе сборщик удалит файл, пока он ещё показывается;
+    // URL на отсутствующий блоб не принимается
+    private void acquirePoster(String posterUrl) {
+        ImageService.hashFromUrl(posterUrl).ifPresent(hash -> {
+            if (!blobStorageService.acquire(hash)) {
+                throw new ValidationException("Изображение постера не найдено: " + posterUrl);
+            }
+        });
+    }
+
     @Transactional
     public Lacorn updateLacorn(Long id, Lacorn lacornDetails) {
         Lacorn lacorn = lacornRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Лакорн не найден"));
 
+        // Новый локальный постер получает ссылку, копия прежнего больше не нужна этому лакорну
+        if (!Objects.equals(lacorn.getPosterUrl(), lacornDetails.getPosterUrl())) {
+            acquirePoster(lacornDetails.getPosterUrl());
+            ImageService.hashFromUrl(lacorn.getPosterUrl()).ifPresent(blobStorageService::release);
+        }
+
         lacorn.setTitle(lacornDetails.getTitle());
         lacorn.setDescription(lacornDetails.getDescription());
         lacorn.setReleaseYear(lacornDetails.getReleaseYear());
@@ -134,49 +217,89 @@ public class LacornService {
             lacorn.getActors().addAll(processedActors);
         }
 
-        return lacornRepository.save(lacorn);
+        Lacorn savedLacorn = lacornRepository.save(lacorn);
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(id));
+        return savedLacorn;
     }
 
-    @Transactional(readOnly = true)
+    // Общая часть карточки берётся из кэша, прогресс пользователя накладывается на копию
     public LacornDTO getLacornById(Long id, Long userId) {
-        Lacorn lacorn = lacornRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Лакорн не найден"));
-
-        LacornDTO dto = new LacornDTO(lacorn);
-
-        if (userId != null) {
-            // Загружаем прогресс просмотра для пользователя
-            watchHistoryRepository.findByUserIdAndLacornId(userId, id)
-                    .ifPresent(watchHistory -> {
-                        WatchProgressDTO progress = new WatchProgressDTO();
-                        progress.setEpisodeId(watchHistory.getEpisode().getId());
-                        progress.setCurrentTime(watchHistory.getCurrentTime());
-                        progress.setCompleted(watchHistory.isCompleted());
-                        progress.setLastWatched(watchHistory.getLastWatched());
-                        dto.setWatchProgress(progress);
-                    });
+        LacornDTO core = lacornDetailsCache.get(id);
+        if (core == null) {
+            throw new ResourceNotFoundException("Лакорн не найден");
         }
 
-        return dto;
+        LacornDTO.LacornDTOBuilder dto = core.toBuilder();
+        loadWatchState(userId, List.of(id)).forLacorn(id)
+                .ifPresent(watchHistory -> dto.watchProgress(convertToWatchProgressDTO(watchHistory)));
+        return dto.build();
+    }
+
+    public Map<String, Object> getLacornCacheStats() {
+        return lacornDetailsCache.stats();
     }
 
     @Transactional(readOnly = true)
     public Page<LacornDTO> getAllLacorns(Pageable pageable, Long userId) {
-        return lacornRepository.findAll(pageable)
-                .map(lacorn -> new LacornDTO(lacorn));
+        return convertPage(lacornRepository.findAllWithGenres(pageable), userId);
+    }
+
+    // Лёгкий каталог для карточек: без эпизодов, актёров и озвучек
+    @Transactional(readOnly = true)
+    public Page<LacornCardDTO> getLacornCards(Pageable pageable) {
+        return convertSummaries(lacornRepository.findAllSummaries(pageable));
     }
 
+    @Transactional(readOnly = true)
+    public List<LacornCardDTO> getTopRatedLacornCards(int limit) {
+        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "rating"));
+        return convertSummaries(lacornRepository.findAllSummaries(pageable)).getContent();
+    }
+
+    // Полнотекстовый поиск по названию, описанию и актёрам; результаты упорядочены по релевантности
     @Transactional(readOnly = true)
     public Page<LacornDTO> searchLacorns(String query, Pageable pageable, Long userId) {
-        return lacornRepository.findByTitleContainingIgnoreCase(query, pageable)
-                .map(lacorn -> new LacornDTO(lacorn));
+        if (searchIndex.isReady()) {
+            try {
+                int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+                LacornSearchIndex.SearchResult result = searchIndex.search(query, offset, pageable.getPageSize());
+                Page<Lacorn> page = new PageImpl<>(lacornRepository.findAllWithGenresInOrder(result.getIds()),
+                        pageable, result.getTotalHits());
+                return convertPage(page, userId);
+            } catch (IOException e) {
+                logger.error("Search index query failed, falling back to database: {}", e.getMessage(), e);
+            }
+        }
+        return convertPage(lacornRepository.findByTitleContainingIgnoreCaseWithGenres(query, pageable), userId);
+    }
+
+    // Подсказки по мере ввода: отвечает индекс в памяти, без запросов к базе
+    public List<SuggestionDTO> suggest(String query, int limit) {
+        return titleSuggester.suggest(query, limit);
+    }
+
+    // Счётчики значений фасетов при текущем фильтре - только из индекса в памяти
+    public Map<String, Map<String, Integer>> getFacets(FacetFilter filter) {
+        return facetIndex.facets(filter);
+    }
+
+    // Фильтрация по нескольким фасетам сразу: пересечение битмапов в памяти,
+    // из базы загружается только итоговая страница
+    @Transactional(readOnly = true)
+    public FacetedPageDTO<LacornDTO> filterLacorns(FacetFilter filter, int page, int size, Long userId) {
+        int pageSize = Math.max(1, Math.min(size, MAX_FEED_SIZE));
+        int pageNumber = Math.max(0, page);
+        // Большой page не должен переполнять int: смещение за пределами выдачи даёт пустую страницу
+        int offset = (int) Math.min((long) pageNumber * pageSize, Integer.MAX_VALUE);
+        CatalogFacetIndex.FacetResult result = facetIndex.query(filter, offset, pageSize);
+        List<LacornDTO> content = result.getIds().isEmpty() ? List.of()
+                : convertList(lacornRepository.findAllWithGenresInOrder(result.getIds()), userId);
+        return new FacetedPageDTO<>(content, result.getTotal(), pageNumber, pageSize, result.getFacets());
     }
 
     @Transactional(readOnly = true)
     public List<LacornDTO> getLacornsByGenre(String genre, Long userId) {
-        return lacornRepository.findByGenresContaining(genre).stream()
-                .map(LacornDTO::new)
-                .collect(Collectors.toList());
+        return convertList(lacornRepository.findByGenresContaining(genre), userId);
     }
 
     @Transactional
@@ -185,57 +308,109 @@ public class LacornService {
                 .orElseThrow(() -> new ResourceNotFoundException("Лакорн не найден"));
 
         episode.setLacorn(lacorn);
-        return episodeRepository.save(episode);
+        Episode savedEpisode = episodeRepository.save(episode);
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(lacornId));
+        return savedEpisode;
     }
 
     @Transactional(readOnly = true)
     public List<EpisodeDTO> getEpisodesByLacornId(Long lacornId, Long userId) {
         List<Episode> episodes = episodeRepository.findByLacornIdOrderBySeasonNumberAscEpisodeNumberAsc(lacornId);
+        WatchStateSnapshot watchState = loadWatchState(userId, List.of(lacornId));
 
         return episodes.stream()
-                .map(episode -> {
-                    EpisodeDTO dto = new EpisodeDTO(episode);
-
-                    if (userId != null) {
-                        // Проверяем, просмотрен ли эпизод
-                        watchHistoryRepository.findByUserIdAndEpisodeId(userId, episode.getId())
-                                .ifPresent(watchHistory -> {
-                                    dto.setWatched(watchHistory.isCompleted());
-                                    dto.setCurrentTime(watchHistory.getCurrentTime());
-                                });
-                    }
-
-                    return dto;
-                })
+                .map(episode -> convertToEpisodeDTO(episode, watchState))
                 .collect(Collectors.toList());
     }
 
-    // ДОБАВЛЕННЫЙ МЕТОД для генерации URL видео
+    // URL для плеера: HLS-мастер-плейлист с выбранной озвучкой по умолчанию,
+    // а для ещё не упакованных в дорожки эпизодов - прежний файл целиком
     public String generateVideoUrl(Long episodeId, String voicecover) {
-        // Здесь должна быть логика генерации URL видео
-        // Например, можно получать эпизод из репозитория и формировать URL
-
-        Episode episode = episodeRepository.findById(episodeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Эпизод не найден"));
-
-        // Формируем URL на основе voicecover
-        // Это пример - вы можете изменить логику под свои нужды
-        String baseUrl = "/videos/";
-        String fileName = "episode_" + episodeId + "_" + voicecover + ".mp4";
+        if (!episodeRepository.existsById(episodeId)) {
+            throw new ResourceNotFoundException("Эпизод не найден");
+        }
+        if (hlsService.hasTracks(episodeId)) {
+            return HlsService.masterPlaylistUrl(episodeId, toVoiceover(voicecover));
+        }
+        return "/videos/episode_" + episodeId + "_" + voicecover + ".mp4";
+    }
 
-        return baseUrl + fileName;
+    // Старые клиенты присылают dubbed/subbed; неизвестное значение - озвучка на выбор плеера
+    private static Episode.VoiceoverType toVoiceover(String voicecover) {
+        if (voicecover == null) {
+            return null;
+        }
+        switch (voicecover.toLowerCase(Locale.ROOT)) {
+            case "dubbed" -> {
+                return Episode.VoiceoverType.RUSSIAN_DUB;
+            }
+            case "subbed" -> {
+                return Episode.VoiceoverType.ORIGINAL_SUBBED;
+            }
+            default -> {
+                try {
+                    return HlsService.parseVoiceover(voicecover);
+                } catch (ValidationException e) {
+                    return null;
+                }
+            }
+        }
     }
 
-    @Transactional
+    // Heartbeat плеера: позиция попадает в буфер и пишется в базу пачкой, без транзакции на каждый вызов
     public WatchProgressDTO updateWatchProgress(Long userId, WatchRequestDTO watchRequest) {
-        // Реализация метода
-        return new WatchProgressDTO();
+        if (watchRequest.getEpisodeId() == null) {
+            throw new ValidationException("Не указан эпизод");
+        }
+        if (watchRequest.getCurrentTime() != null && watchRequest.getCurrentTime() < 0) {
+            throw new ValidationException("Некорректная позиция просмотра");
+        }
+
+        Long lacornId = resolveLacornId(watchRequest.getEpisodeId());
+        if (!watchProgressWriteBehind) {
+            boolean completed = Boolean.TRUE.equals(watchRequest.getCompleted());
+            LocalDateTime now = LocalDateTime.now();
+            watchHistoryRepository.upsertProgress(userId, lacornId, watchRequest.getEpisodeId(),
+                    watchRequest.getCurrentTime(), completed, now);
+            WatchProgressDTO progress = new WatchProgressDTO(watchRequest.getEpisodeId(),
+                    watchRequest.getCurrentTime(), completed, now);
+            progress.setLacornId(lacornId);
+            return progress;
+        }
+        WatchProgressBuffer.Pending pending = watchProgressBuffer.record(userId, lacornId,
+                watchRequest.getEpisodeId(), watchRequest.getCurrentTime(), watchRequest.getCompleted());
+        return convertToWatchProgressDTO(pending);
     }
 
     @Transactional(readOnly = true)
     public WatchProgressDTO getWatchProgress(Long userId, Long lacornId) {
-        // Реализация метода
-        return new WatchProgressDTO();
+        // Несброшенный heartbeat свежее того, что лежит в базе
+        WatchProgressBuffer.Pending pending = watchProgressBuffer.find(userId, lacornId);
+        if (pending != null) {
+            return convertToWatchProgressDTO(pending);
+        }
+        return watchHistoryRepository.findByUserIdAndLacornId(userId, lacornId)
+                .map(this::convertToWatchProgressDTO)
+                .orElseGet(WatchProgressDTO::new);
+    }
+
+    // Эпизоды удалённого сериала (на этом или другом узле) больше не принимают heartbeat'ы
+    @EventListener
+    public void onLacornChanged(LacornChangedEvent event) {
+        if (event.isDelete()) {
+            lacornIdByEpisodeId.values().removeIf(event.getLacornId()::equals);
+        }
+    }
+
+    private Long resolveLacornId(Long episodeId) {
+        Long cached = lacornIdByEpisodeId.get(episodeId);
+        if (cached != null) {
+            return cached;
+        }
+        Long lacornId = episodeRepository.findLacornIdById(episodeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Эпизод не найден"));
+        lacornIdByEpisodeId.put(episodeId, lacornId);
+        return lacornId;
     }
 
     @Transactional(readOnly = true)
@@ -259,7 +434,9 @@ public class LacornService {
                 .orElseThrow(() -> new ResourceNotFoundException("Актёр не найден"));
 
         lacorn.addActor(actor);
-        return lacornRepository.save(lacorn);
+        Lacorn savedLacorn = lacornRepository.save(lacorn);
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(lacornId));
+        return savedLacorn;
     }
 
     @Transactional
@@ -279,8 +456,10 @@ public class LacornService {
         Actor refreshedActor = actorRepository.findById(actorId).orElse(null);
         if (refreshedActor != null && refreshedActor.getLacorns().isEmpty()) {
             actorRepository.delete(refreshedActor);
+            ImageService.hashFromUrl(refreshedActor.getPhotoUrl()).ifPresent(blobStorageService::release);
         }
 
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(lacornId));
         return savedLacorn;
     }
 
@@ -303,29 +482,73 @@ public class LacornService {
 
     @Transactional(readOnly = true)
     public Page<LacornDTO> getAllLacornsByRatingDesc(Pageable pageable, Long userId) {
-        return lacornRepository.findAllByOrderByRatingDesc(pageable)
-                .map(LacornDTO::new);
+        return convertPage(lacornRepository.findAllByOrderByRatingDesc(pageable), userId);
     }
 
     @Transactional(readOnly = true)
     public List<LacornDTO> getTopRatedLacorns(int limit, Long userId) {
         Pageable pageable = Pageable.ofSize(limit);
-        return lacornRepository.findAllByOrderByRatingDesc(pageable).stream()
-                .map(LacornDTO::new)
-                .collect(Collectors.toList());
+        return convertList(lacornRepository.findAllByOrderByRatingDesc(pageable).getContent(), userId);
+    }
+
+    private static final String RATING_FEED = "rating";
+    private static final String LATEST_FEED = "latest";
+    private static final int MAX_FEED_SIZE = 100;
+
+    // Лента по рейтингу для бесконечной прокрутки: стоимость страницы не зависит от глубины
+    @Transactional(readOnly = true)
+    public FeedPageDTO<LacornDTO> getRatingFeed(String cursor, int size, Long userId) {
+        Pageable limit = feedLimit(size);
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = lacornRepository.findRatingFeedIds(limit);
+        } else {
+            FeedCursor after = FeedCursor.decode(RATING_FEED, cursor);
+            ids = lacornRepository.findRatingFeedIdsAfter(
+                    after.getSortValueAsDouble(), after.getId(), limit);
+        }
+        return buildFeedPage(ids, limit.getPageSize() - 1, userId,
+                last -> FeedCursor.encode(RATING_FEED, last.getRating(), last.getId()));
+    }
+
+    // Лента новинок (createdAt DESC, id DESC)
+    @Transactional(readOnly = true)
+    public FeedPageDTO<LacornDTO> getLatestFeed(String cursor, int size, Long userId) {
+        Pageable limit = feedLimit(size);
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = lacornRepository.findLatestFeedIds(limit);
+        } else {
+            FeedCursor after = FeedCursor.decode(LATEST_FEED, cursor);
+            ids = lacornRepository.findLatestFeedIdsAfter(
+                    after.getSortValueAsDateTime(), after.getId(), limit);
+        }
+        return buildFeedPage(ids, limit.getPageSize() - 1, userId,
+                last -> FeedCursor.encode(LATEST_FEED, last.getCreatedAt(), last.getId()));
+    }
+
+    // Запрашиваем на один элемент больше, чтобы узнать, есть ли продолжение
+    private Pageable feedLimit(int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_FEED_SIZE));
+        return PageRequest.of(0, pageSize + 1);
+    }
+
+    private FeedPageDTO<LacornDTO> buildFeedPage(List<Long> ids, int pageSize, Long userId,
+                                                 Function<Lacorn, String> cursorOf) {
+        boolean hasMore = ids.size() > pageSize;
+        List<Lacorn> lacorns = lacornRepository.findAllWithGenresInOrder(hasMore ? ids.subList(0, pageSize) : ids);
+        String nextCursor = hasMore && !lacorns.isEmpty() ? cursorOf.apply(lacorns.get(lacorns.size() - 1)) : null;
+        return new FeedPageDTO<>(convertList(lacorns, userId), nextCursor, hasMore);
     }
 
     @Transactional(readOnly = true)
     public Page<LacornDTO> searchLacornsByRating(String query, Pageable pageable, Long userId) {
-        return lacornRepository.findByTitleContainingIgnoreCaseOrderByRatingDesc(query, pageable)
-                .map(LacornDTO::new);
+        return convertPage(lacornRepository.findByTitleContainingIgnoreCaseOrderByRatingDesc(query, pageable), userId);
     }
 
     @Transactional(readOnly = true)
     public List<LacornDTO> getLacornsByGenreByRating(String genre, Long userId) {
-        return lacornRepository.findByGenresContainingOrderByRatingDesc(genre).stream()
-                .map(LacornDTO::new)
-                .collect(Collectors.toList());
+        return convertList(lacornRepository.findByGenresContainingOrderByRatingDesc(genre), userId);
     }
 
     @Transactional(readOnly = true)
@@ -337,4 +560,77 @@ public class LacornService {
                 .map(LacornDTO::new)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    // ====== Конвертация в DTO ======
+
+    // Один запрос на всю страницу вместо запроса на каждый лакорн и эпизод
+    WatchStateSnapshot loadWatchState(Long userId, Collection<Long> lacornIds) {
+        if (userId == null || lacornIds.isEmpty()) {
+            return WatchStateSnapshot.empty();
+        }
+        List<UserWatchHistory> histories = new ArrayList<>(watchHistoryRepository.findByUserIdAndLacornIdIn(userId, lacornIds));
+        // Поверх базы - ещё не сброшенные heartbeat'ы, они всегда свежее
+        watchProgressBuffer.findAll(userId, lacornIds).forEach(pending -> histories.add(pending.toHistory()));
+        return WatchStateSnapshot.of(histories);
+    }
+
+    LacornDTO convertToDTO(Lacorn lacorn, WatchStateSnapshot watchState) {
+        LacornDTO dto = new LacornDTO(lacorn);
+        watchState.forLacorn(lacorn.getId())
+                .ifPresent(watchHistory -> dto.setWatchProgress(convertToWatchProgressDTO(watchHistory)));
+        return dto;
+    }
+
+    EpisodeDTO convertToEpisodeDTO(Episode episode, WatchStateSnapshot watchState) {
+        EpisodeDTO dto = new EpisodeDTO(episode);
+        // Проверяем, просмотрен ли эпизод
+        watchState.forEpisode(episode.getId())
+                .ifPresent(watchHistory -> {
+                    dto.setWatched(Boolean.TRUE.equals(watchHistory.isCompleted()));
+                    dto.setCurrentTime(watchHistory.getCurrentTime());
+                });
+        return dto;
+    }
+
+    private WatchProgressDTO convertToWatchProgressDTO(UserWatchHistory watchHistory) {
+        WatchProgressDTO progress = new WatchProgressDTO();
+        progress.setEpisodeId(watchHistory.getEpisode() != null ? watchHistory.getEpisode().getId() : null);
+        progress.setCurrentTime(watchHistory.getCurrentTime());
+        progress.setCompleted(watchHistory.isCompleted());
+        progress.setLastWatched(watchHistory.getLastWatched());
+        progress.setLacornId(watchHistory.getLacorn().getId());
+        return progress;
+    }
+
+    private WatchProgressDTO convertToWatchProgressDTO(WatchProgressBuffer.Pending pending) {
+        WatchProgressDTO progress = new WatchProgressDTO(pending.getEpisodeId(), pending.getCurrentTime(),
+                pending.isCompleted(), pending.getLastWatched());
+        progress.setLacornId(pending.getLacornId());
+        return progress;
+    }
+
+    private Page<LacornDTO> convertPage(Page<Lacorn> page, Long userId) {
+        WatchStateSnapshot watchState = loadWatchState(userId, page.map(Lacorn::getId).getContent());
+        return page.map(lacorn -> convertToDTO(lacorn, watchState));
+    }
+
+    private List<LacornDTO> convertList(List<Lacorn> lacorns, Long userId) {
+        WatchStateSnapshot watchState = loadWatchState(userId,
+                lacorns.stream().map(Lacorn::getId).collect(Collectors.toList()));
+        return lacorns.stream()
+                .map(lacorn -> convertToDTO(lacorn, watchState))
+                .collect(Collectors.toList());
+    }
+
+    private Page<LacornCardDTO> convertSummaries(Page<LacornSummary> summaries) {
+        Map<Long, List<String>> genresByLacornId = new HashMap<>();
+        List<Long> ids = summaries.map(LacornSummary::getId).getContent();
+        if (!ids.isEmpty()) {
+            for (Object[] row : lacornRepository.findGenresByLacornIds(ids)) {
+                genresByLacornId.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+        }
+        return summaries.map(summary ->
+                new LacornCardDTO(summary, genresByLacornId.getOrDefault(summary.getId(), List.of())));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.model.EpisodeMediaTrack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Обработка загруженного видео для IngestService: длительность, кадр-превью и нарезка дорожки на HLS-сегменты.
+ * Реализация выбирается ingest.processor: ffmpeg (внешние ffprobe/ffmpeg) или stub (чистая Java, без перекодирования).
+ */
+public interface MediaProcessor {
+
+    MediaProbe probe(Path source) throws IOException;
+
+    void thumbnail(Path source, double positionSeconds, Path target) throws IOException;
+
+    /**
+     * Нарезает одну дорожку source в outputDir (0.ts, 1.ts, ...). progress получает долю 0..1.
+     * Пустой список - дорожку из этого файла получить нельзя (например, звук у stub).
+     */
+    PackagedTrack packageTrack(Path source, MediaProbe probe, TrackSpec spec, Path outputDir,
+                               DoubleConsumer progress) throws IOException;
+
+    // Неизвестные значения - null
+    record MediaProbe(Double durationSeconds, Integer width, Integer height, boolean hasAudio) {
+    }
+
+    // Ступень лестницы (VIDEO) или аудиодорожка (AUDIO); height = null - видео без перекодирования
+    record TrackSpec(EpisodeMediaTrack.Kind kind, Integer height, Integer bitrateKbps) {
+    }
+
+    record SegmentFile(int sequence, double duration, Path path, long sizeBytes) {
+    }
+
+    record PackagedTrack(List<SegmentFile> segments, String codecs) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.exception.ResourceNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Байты HLS-сегментов. Горячие сегменты лежат в памяти: Caffeine с вытеснением по суммарному
+ * размеру (hls.segment-cache.maximum-bytes), TinyLFU сам решает, стоит ли держать новый сегмент.
+ * Промах читается через mmap и копируется в кэш один раз, даже если сегмент одновременно
+ * запросили сотни зрителей новой серии. Сегменты крупнее maximum-segment-bytes в кэш не попадают
+ * и отдаются прямо из отображённого файла.
+ * Файлы сегментов неизменяемы: переупаковка пишет новые пути, старые записи просто вытесняются.
+ */
+@Component
+public class SegmentCache {
+
+    @Value("${hls.segment-cache.maximum-bytes:512MB}")
+    private DataSize maximumBytes;
+
+    @Value("${hls.segment-cache.maximum-segment-bytes:16MB}")
+    private DataSize maximumSegmentBytes;
+
+    private Cache<Path, ByteBuffer> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes.toBytes())
+                .weigher((Path path, ByteBuffer bytes) -> bytes.capacity())
+                .recordStats()
+                .build();
+    }
+
+    // Буфер только для чтения со своей позицией - его можно отдавать в ответ без синхронизации
+    public ByteBuffer read(Path path, long expectedSize) throws IOException {
+        try {
+            if (expectedSize > maximumSegmentBytes.toBytes()) {
+                return map(path);
+            }
+            return cache.get(path, SegmentCache::load).asReadOnlyBuffer();
+        } catch (UncheckedIOException e) {
+            throw unwrap(e.getCause());
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Сегмент не найден");
+        }
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("segments", cache.estimatedSize());
+        result.put("maximumBytes", maximumBytes.toBytes());
+        result.put("hitRate", stats.hitRate());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private static ByteBuffer load(Path path) {
+        try {
+            ByteBuffer mapped = map(path);
+            ByteBuffer heap = ByteBuffer.allocate(mapped.remaining());
+            heap.put(mapped).flip();
+            return heap;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Отображение остаётся валидным после закрытия канала
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static IOException unwrap(IOException e) {
+        if (e instanceof NoSuchFileException) {
+            throw new ResourceNotFoundException("Сегмент не найден");
+        }
+        return e;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.model.EpisodeMediaTrack;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Обработка без ffmpeg для разработки и тестов: длительность оценивается по размеру файла
+ * и ingest.stub.assumed-bitrate-kbps, превью - однотонная картинка, сегменты - куски исходного файла
+ * примерно по ingest.segment-seconds. Отдельную аудиодорожку не выделяет.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.processor", havingValue = "stub", matchIfMissing = true)
+public class StubMediaProcessor implements MediaProcessor {
+
+    @Value("${ingest.stub.assumed-bitrate-kbps:4000}")
+    private int assumedBitrateKbps;
+
+    @Value("${ingest.segment-seconds:6}")
+    private int segmentSeconds;
+
+    @Override
+    public MediaProbe probe(Path source) throws IOException {
+        return new MediaProbe(Files.size(source) / bytesPerSecond(), null, null, false);
+    }
+
+    @Override
+    public void thumbnail(Path source, double positionSeconds, Path target) throws IOException {
+        BufferedImage image = new BufferedImage(640, 360, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.DARK_GRAY);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } finally {
+            graphics.dispose();
+        }
+        if (!ImageIO.write(image, "jpg", target.toFile())) {
+            throw new IOException("No JPEG writer available");
+        }
+    }
+
+    @Override
+    public PackagedTrack packageTrack(Path source, MediaProbe probe, TrackSpec spec, Path outputDir,
+                                      DoubleConsumer progress) throws IOException {
+        if (spec.kind() != EpisodeMediaTrack.Kind.VIDEO) {
+            return new PackagedTrack(List.of(), null);
+        }
+        long segmentBytes = Math.max(1, Math.round(bytesPerSecond() * segmentSeconds));
+        List<SegmentFile> segments = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            for (long position = 0; position < size; position += segmentBytes) {
+                long length = Math.min(segmentBytes, size - position);
+                Path target = outputDir.resolve(segments.size() + ".ts");
+                try (FileChannel out = FileChannel.open(target,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    long copied = 0;
+                    while (copied < length) {
+                        copied += in.transferTo(position + copied, length - copied, out);
+                    }
+                }
+                segments.add(new SegmentFile(segments.size(), length / bytesPerSecond(), target, length));
+                progress.accept((double) (position + length) / size);
+            }
+        }
+        return new PackagedTrack(segments, null);
+    }
+
+    private double bytesPerSecond() {
+        return assumedBitrateKbps * 1000.0 / 8;
+    }
+}
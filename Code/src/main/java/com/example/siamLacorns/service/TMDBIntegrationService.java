@@ -3,23 +3,32 @@ package com.example.siamLacorns.service;
 
 import com.example.siamLacorns.dto.ActorDTO;
 import com.example.siamLacorns.dto.TMDBLacornDTO;
+import com.example.siamLacorns.event.LacornChangedEvent;
 import com.example.siamLacorns.model.Actor;
 import com.example.siamLacorns.model.Lacorn;
 import com.example.siamLacorns.repository.ActorRepository;
 import com.example.siamLacorns.repository.LacornRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("siam.service")
 public class TMDBIntegrationService {
 
     @Value("${tmdb.api.key}")
@@ -37,19 +46,41 @@ public class TMDBIntegrationService {
     @Autowired
     private ActorRepository actorRepository; // ДОБАВЛЕНО!
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    private RestTemplate restTemplate;
+
+    // Клиент из RestTemplateBuilder инструментирован Micrometer (http.client.requests);
+    // запросы идут по URI-шаблонам, поэтому в метрику попадает /tv/{id}, а не id и api_key
+    @PostConstruct
+    public void init() {
+        restTemplate = restTemplateBuilder
+                .rootUri(tmdbBaseUrl)
+                .connectTimeout(Duration.ofSeconds(5))
+                .readTimeout(Duration.ofSeconds(20))
+                .build();
+    }
 
     public List<TMDBLacornDTO> searchContent(String query, Integer year) {
-        String url = UriComponentsBuilder.fromHttpUrl(tmdbBaseUrl + "/search/multi")
-                .queryParam("api_key", tmdbApiKey)
-                .queryParam("query", query)
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("apiKey", tmdbApiKey);
+        variables.put("query", query);
+        UriComponentsBuilder uri = UriComponentsBuilder.fromPath("/search/multi")
+                .queryParam("api_key", "{apiKey}")
+                .queryParam("query", "{query}")
                 .queryParam("language", "en-US")
-                .queryParam("page", 1)
-                .queryParam("year", year)
-                .toUriString();
+                .queryParam("page", 1);
+        if (year != null) {
+            uri.queryParam("year", "{year}");
+            variables.put("year", year);
+        }
 
         try {
-            TMDBResponse response = restTemplate.getForObject(url, TMDBResponse.class);
+            TMDBResponse response = restTemplate.getForObject(uri.build().toUriString(), TMDBResponse.class, variables);
             return Arrays.stream(response.getResults())
                     .map(this::convertToTMDBLacornDTO)
                     .collect(Collectors.toList());
@@ -60,14 +91,15 @@ public class TMDBIntegrationService {
 
     public TMDBLacornDTO getContentDetails(Long tmdbId, String mediaType) {
         String endpoint = mediaType.equals("movie") ? "/movie/" : "/tv/";
-        String url = UriComponentsBuilder.fromHttpUrl(tmdbBaseUrl + endpoint + tmdbId)
-                .queryParam("api_key", tmdbApiKey)
+        String url = UriComponentsBuilder.fromPath(endpoint + "{id}")
+                .queryParam("api_key", "{apiKey}")
                 .queryParam("language", "en-US")
                 .queryParam("append_to_response", "videos,credits")
+                .build()
                 .toUriString();
 
         try {
-            TMDBDetailResponse response = restTemplate.getForObject(url, TMDBDetailResponse.class);
+            TMDBDetailResponse response = restTemplate.getForObject(url, TMDBDetailResponse.class, tmdbId, tmdbApiKey);
             return convertDetailToTMDBLacornDTO(response, mediaType);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при получении деталей из TMDB: " + e.getMessage());
@@ -140,7 +172,10 @@ public class TMDBIntegrationService {
         }
 
         // 3. Сохраняем лакорн
-        return lacornRepository.save(lacorn);
+        Lacorn savedLacorn = lacornRepository.save(lacorn);
+        // После коммита ImageMirrorService скачает постер и фото актёров с CDN TMDB к нам
+        eventPublisher.publishEvent(LacornChangedEvent.upsert(savedLacorn.getId()));
+        return savedLacorn;
     }
 
     private Lacorn.SeriesStatus mapSeriesStatus(String tmdbStatus) {
@@ -205,7 +240,8 @@ public class TMDBIntegrationService {
         return dto;
     }
 
-    private TMDBLacornDTO convertDetailToTMDBLacornDTO(TMDBDetailResponse detail, String mediaType) {
+    // package-private: используется JMH-бенчмарком из модуля benchmarks
+    TMDBLacornDTO convertDetailToTMDBLacornDTO(TMDBDetailResponse detail, String mediaType) {
         TMDBLacornDTO dto = new TMDBLacornDTO();
         dto.setTmdbId(detail.getId());
         dto.setMediaType(mediaType);
@@ -315,7 +351,7 @@ public class TMDBIntegrationService {
         public void setVote_average(Double vote_average) { this.vote_average = vote_average; }
     }
 
-    private static class TMDBDetailResponse {
+    static class TMDBDetailResponse {
         private Long id;
         private String title;
         private String name;
@@ -16,6 +16,15 @@ public class UserDetailsImpl implements UserDetails {
         this.user = user;
     }
 
+    // Пользователь, восстановленный из подписанных claim'ов токена, без обращения к базе
+    public static UserDetailsImpl fromClaims(Long id, String username, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole(role);
+        return new UserDetailsImpl(user);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole()));
@@ -1,13 +1,23 @@
 package com.example.siamLacorns.service;
 
+import com.example.siamLacorns.event.InvalidationResyncEvent;
+import com.example.siamLacorns.event.UserChangedEvent;
 import com.example.siamLacorns.exception.AuthenticationException;
 import com.example.siamLacorns.model.User;
 import com.example.siamLacorns.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
@@ -15,6 +25,24 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Value("${security.user-cache.maximum-size:10000}")
+    private long cacheMaximumSize;
+
+    @Value("${security.user-cache.ttl:5m}")
+    private Duration cacheTtl;
+
+    // Пользователи аутентифицированных запросов; TTL ограничивает устаревание, если событие не дошло
+    private Cache<String, UserDetailsImpl> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // ✅ Теперь ищем по username, а не по email
@@ -23,4 +51,35 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         return new UserDetailsImpl(user);
     }
+
+    /**
+     * То же, что loadUserByUsername, но через кэш - для проверки токена на каждом запросе.
+     * Логин по паролю по-прежнему читает пользователя из базы.
+     */
+    public UserDetailsImpl loadCachedUserByUsername(String username) {
+        return cache.get(username, key -> userRepository.findByUsername(key)
+                .map(user -> new UserDetailsImpl(detachedCopy(user)))
+                .orElseThrow(() -> new AuthenticationException("Пользователь не найден: " + key)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getUsername() != null) {
+            cache.invalidate(event.getUsername());
+        }
+    }
+
+    @EventListener(InvalidationResyncEvent.class)
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // В кэше не должно остаться ленивых коллекций сущности - копируем только скалярные поля
+    private static User detachedCopy(User user) {
+        User copy = new User(user.getUsername(), user.getEmail(), user.getBirthDate(), user.getPassword());
+        copy.setId(user.getId());
+        copy.setRole(user.getRole());
+        copy.setAvatar(user.getAvatar());
+        return copy;
+    }
 }
\ No newline at end of file
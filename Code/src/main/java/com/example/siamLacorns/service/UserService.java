@@ -2,27 +2,38 @@ package com.example.siamLacorns.service;
 
 import com.example.siamLacorns.dto.CollectionDTO;
 import com.example.siamLacorns.dto.UserDTO;
+import com.example.siamLacorns.event.UserChangedEvent;
 import com.example.siamLacorns.exception.ResourceNotFoundException;
 import com.example.siamLacorns.exception.ValidationException;
 import com.example.siamLacorns.model.Lacorn;
 import com.example.siamLacorns.model.SeriesCollection;
+import com.example.siamLacorns.model.StoredBlob;
 import com.example.siamLacorns.model.User;
 import com.example.siamLacorns.repository.LacornRepository;
 import com.example.siamLacorns.repository.SeriesCollectionRepository;
 import com.example.siamLacorns.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("siam.service")
 public class UserService {
 
     @Autowired
@@ -33,15 +44,25 @@ public class UserService {
     private SeriesCollectionRepository collectionRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Value("${avatar.max-size:5MB}")
+    private DataSize maxAvatarSize;
+
+    private static final Set<String> AVATAR_TYPES = Set.of("image/jpeg", "image/png", "image/webp", "image/gif");
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
-    private static final String[] DEFAULT_COLLECTIONS = {
+    // Стандартные коллекции пользователя; их же создаёт CatalogSeeder
+    public static final List<String> DEFAULT_COLLECTIONS = List.of(
             "Favourites",
             "Watch later",
             "Started",
             "Forsaken"
-    };
+    );
 
     // UserService.java - добавьте этот метод
     public UserDTO getUserByUsername(String username) {
@@ -78,14 +99,33 @@ public class UserService {
         return convertToDTO(user);
     }
 
+    // Картинка аватара в хранилище блобов; возвращённый блоб уже несёт ссылку для updateAvatar
+    public StoredBlob storeAvatar(InputStream content, String contentType) throws IOException {
+        String type;
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            type = mediaType.getType() + "/" + mediaType.getSubtype();
+        } catch (IllegalArgumentException e) {
+            type = null;
+        }
+        if (type == null || !AVATAR_TYPES.contains(type)) {
+            throw new ValidationException("Аватар должен быть изображением JPEG, PNG, WebP или GIF");
+        }
+        return blobStorageService.store(content, type, maxAvatarSize.toBytes());
+    }
+
     @Transactional
     public void updateAvatar(String username, String avatarUrl) {
         User user = userRepository.findByUsername(username).get();
         if (user == null) {
             throw new RuntimeException("Пользователь не найден");
         }
+        String previousAvatar = user.getAvatar();
         user.setAvatar(avatarUrl);
         userRepository.save(user);
+        // Прежний аватар больше не нужен этому пользователю; файл удалит сборщик, если ссылок не осталось
+        BlobStorageService.hashFromUrl(previousAvatar).ifPresent(blobStorageService::release);
+        eventPublisher.publishEvent(UserChangedEvent.upsert(user.getId(), username));
     }
 
 
@@ -191,6 +231,7 @@ public class UserService {
     public UserDTO updateUser(Long id, User userDetails) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден с ID: " + id));
+        String previousUsername = user.getUsername();
 
         // ✅ Проверяем уникальность username при обновлении
         if (!user.getUsername().equals(userDetails.getUsername()) &&
@@ -217,7 +258,9 @@ public class UserService {
             user.setRole("ADMIN");
         }
 
-        return convertToDTO(userRepository.save(user));
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.upsert(id, previousUsername));
+        return convertToDTO(savedUser);
     }
 
     // Удаление пользователя
@@ -227,6 +270,8 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден с ID: " + id));
 
         userRepository.delete(user);
+        BlobStorageService.hashFromUrl(user.getAvatar()).ifPresent(blobStorageService::release);
+        eventPublisher.publishEvent(UserChangedEvent.delete(id, user.getUsername()));
         return true;
     }
 
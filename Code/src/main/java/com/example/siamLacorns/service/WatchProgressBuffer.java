@@ -0,0 +1,258 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.UserWatchHistory;
+import com.example.siamLacorns.repository.UserWatchHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Буфер прогресса просмотра (write-behind).
+ * Плеер присылает heartbeat каждые несколько секунд; в базу из них нужен только последний.
+ * Heartbeat'ы складываются в шардированную карту по ключу (userId, lacornId), где новая позиция
+ * вытесняет старую, а в базу уходят пачкой по таймеру или при переполнении буфера.
+ */
+@Component
+public class WatchProgressBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchProgressBuffer.class);
+
+    private static final int SHARD_COUNT = 16;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${watch.progress.flush-threshold:5000}")
+    private int flushThreshold;
+
+    @Value("${watch.progress.batch-size:500}")
+    private int batchSize;
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<Key, Pending>[] shards = new ConcurrentHashMap[SHARD_COUNT];
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Сброс по порогу не должен выполняться в потоке запроса
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "watch-progress-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WatchProgressBuffer() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Принимает heartbeat. Более старая позиция (по времени получения) не затирает более новую.
+     */
+    public Pending record(Long userId, Long lacornId, Long episodeId, Integer currentTime, Boolean completed) {
+        Key key = new Key(userId, lacornId);
+        Pending incoming = new Pending(userId, lacornId, episodeId, currentTime,
+                Boolean.TRUE.equals(completed), LocalDateTime.now());
+
+        // Счётчик растёт только при появлении нового ключа: замена позиции размер буфера не меняет
+        boolean[] inserted = new boolean[1];
+        Pending stored = shard(key).compute(key, (ignored, previous) -> {
+            if (previous == null) {
+                inserted[0] = true;
+                return incoming;
+            }
+            return incoming.lastWatched.isBefore(previous.lastWatched) ? previous : incoming;
+        });
+        if (inserted[0] && pendingCount.incrementAndGet() >= flushThreshold
+                && flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+        return stored;
+    }
+
+    public Pending find(Long userId, Long lacornId) {
+        Key key = new Key(userId, lacornId);
+        return shard(key).get(key);
+    }
+
+    // Ещё не сброшенный прогресс пользователя по набору лакорнов
+    public List<Pending> findAll(Long userId, Collection<Long> lacornIds) {
+        List<Pending> result = new ArrayList<>();
+        for (Long lacornId : lacornIds) {
+            Pending pending = find(userId, lacornId);
+            if (pending != null) {
+                result.add(pending);
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${watch.progress.flush-interval-ms:2000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Сбрасывает буфер в базу. Запись удаляется из карты только если её не успел
+     * заменить более свежий heartbeat - тогда она уйдёт следующим сбросом.
+     */
+    public synchronized int flush() {
+        List<Pending> drained = new ArrayList<>();
+        for (ConcurrentHashMap<Key, Pending> shard : shards) {
+            for (Map.Entry<Key, Pending> entry : shard.entrySet()) {
+                drained.add(entry.getValue());
+            }
+        }
+        if (drained.isEmpty()) {
+            return 0;
+        }
+
+        for (int from = 0; from < drained.size(); from += batchSize) {
+            List<Pending> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+            try {
+                write(batch);
+            } catch (DataIntegrityViolationException e) {
+                // Пачку валит одна строка (например, сериал уже удалён) - пишем по одной, битые отбрасываем
+                batch = writeOneByOne(batch);
+            } catch (RuntimeException e) {
+                // Записи остаются в буфере и будут повторены следующим сбросом
+                logger.error("Failed to flush {} watch progress entries", batch.size(), e);
+                continue;
+            }
+            for (Pending pending : batch) {
+                Key key = new Key(pending.userId, pending.lacornId);
+                if (shard(key).remove(key, pending)) {
+                    pendingCount.decrementAndGet();
+                }
+            }
+        }
+        logger.debug("Flushed {} watch progress entries", drained.size());
+        return drained.size();
+    }
+
+    // Пакет атомарных upsert'ов: в буфере ключи уникальны, поэтому строки пакета не конфликтуют друг с другом
+    private void write(List<Pending> batch) {
+        SqlParameterSource[] parameters = new SqlParameterSource[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            parameters[i] = new MapSqlParameterSource()
+                    .addValue("userId", pending.userId)
+                    .addValue("lacornId", pending.lacornId)
+                    .addValue("episodeId", pending.episodeId, Types.BIGINT)
+                    .addValue("currentTime", pending.currentTime, Types.INTEGER)
+                    .addValue("completed", pending.completed)
+                    .addValue("lastWatched", Timestamp.valueOf(pending.lastWatched));
+        }
+        jdbcTemplate.batchUpdate(UserWatchHistoryRepository.UPSERT_PROGRESS_SQL, parameters);
+    }
+
+    private List<Pending> writeOneByOne(List<Pending> batch) {
+        List<Pending> written = new ArrayList<>();
+        for (Pending pending : batch) {
+            try {
+                write(List.of(pending));
+                written.add(pending);
+            } catch (DataIntegrityViolationException e) {
+                logger.warn("Dropping watch progress of user {} for lacorn {}: {}",
+                        pending.userId, pending.lacornId, e.getMostSpecificCause().getMessage());
+                Key key = new Key(pending.userId, pending.lacornId);
+                if (shard(key).remove(key, pending)) {
+                    pendingCount.decrementAndGet();
+                }
+            }
+        }
+        return written;
+    }
+
+    // При остановке приложения буфер обязательно сбрасывается, чтобы не потерять прогресс
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        int flushed = flush();
+        if (flushed > 0) {
+            logger.info("Flushed {} watch progress entries on shutdown", flushed);
+        }
+    }
+
+    public int size() {
+        return pendingCount.get();
+    }
+
+    private ConcurrentHashMap<Key, Pending> shard(Key key) {
+        return shards[Math.floorMod(key.hashCode(), SHARD_COUNT)];
+    }
+
+    private record Key(long userId, long lacornId) {
+    }
+
+    /**
+     * Последняя принятая позиция пользователя в лакорне, ещё не записанная в базу.
+     */
+    public static final class Pending {
+        private final long userId;
+        private final long lacornId;
+        private final Long episodeId;
+        private final Integer currentTime;
+        private final boolean completed;
+        private final LocalDateTime lastWatched;
+
+        Pending(long userId, long lacornId, Long episodeId, Integer currentTime,
+                boolean completed, LocalDateTime lastWatched) {
+            this.userId = userId;
+            this.lacornId = lacornId;
+            this.episodeId = episodeId;
+            this.currentTime = currentTime;
+            this.completed = completed;
+            this.lastWatched = lastWatched;
+        }
+
+        public Long getLacornId() { return lacornId; }
+        public Long getEpisodeId() { return episodeId; }
+        public Integer getCurrentTime() { return currentTime; }
+        public boolean isCompleted() { return completed; }
+        public LocalDateTime getLastWatched() { return lastWatched; }
+
+        // Несохранённая запись истории - только для наложения на снимок прогресса
+        UserWatchHistory toHistory() {
+            Lacorn lacorn = new Lacorn();
+            lacorn.setId(lacornId);
+            Episode episode = null;
+            if (episodeId != null) {
+                episode = new Episode();
+                episode.setId(episodeId);
+            }
+            UserWatchHistory history = new UserWatchHistory(null, lacorn, episode);
+            history.setCurrentTime(currentTime);
+            history.setCompleted(completed);
+            history.setLastWatched(lastWatched);
+            return history;
+        }
+    }
+}
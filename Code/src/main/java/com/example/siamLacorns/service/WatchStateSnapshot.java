@@ -0,0 +1,65 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.model.UserWatchHistory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Снимок прогресса просмотра одного пользователя для набора лакорнов.
+ * Загружается одним запросом на страницу и используется при конвертации
+ * как самих лакорнов, так и их эпизодов.
+ */
+public class WatchStateSnapshot {
+
+    private static final WatchStateSnapshot EMPTY =
+            new WatchStateSnapshot(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<Long, UserWatchHistory> byLacornId;
+    private final Map<Long, UserWatchHistory> byEpisodeId;
+
+    private WatchStateSnapshot(Map<Long, UserWatchHistory> byLacornId,
+                               Map<Long, UserWatchHistory> byEpisodeId) {
+        this.byLacornId = byLacornId;
+        this.byEpisodeId = byEpisodeId;
+    }
+
+    public static WatchStateSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static WatchStateSnapshot of(List<UserWatchHistory> histories) {
+        if (histories == null || histories.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<Long, UserWatchHistory> byLacornId = new HashMap<>();
+        Map<Long, UserWatchHistory> byEpisodeId = new HashMap<>();
+        for (UserWatchHistory history : histories) {
+            // getId() у ленивого прокси не инициализирует сущность
+            byLacornId.merge(history.getLacorn().getId(), history, WatchStateSnapshot::latest);
+            if (history.getEpisode() != null) {
+                byEpisodeId.merge(history.getEpisode().getId(), history, WatchStateSnapshot::latest);
+            }
+        }
+        return new WatchStateSnapshot(byLacornId, byEpisodeId);
+    }
+
+    public Optional<UserWatchHistory> forLacorn(Long lacornId) {
+        return Optional.ofNullable(byLacornId.get(lacornId));
+    }
+
+    public Optional<UserWatchHistory> forEpisode(Long episodeId) {
+        return Optional.ofNullable(byEpisodeId.get(episodeId));
+    }
+
+    // Если в истории оказались дубликаты, берём самую свежую запись
+    private static UserWatchHistory latest(UserWatchHistory a, UserWatchHistory b) {
+        if (a.getLastWatched() == null) return b;
+        if (b.getLastWatched() == null) return a;
+        return b.getLastWatched().isAfter(a.getLastWatched()) ? b : a;
+    }
+}
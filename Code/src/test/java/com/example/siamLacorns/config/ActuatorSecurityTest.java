@@ -0,0 +1,65 @@
+package com.example.siamLacorns.config;
+
+import com.example.siamLacorns.model.User;
+import com.example.siamLacorns.repository.UserRepository;
+import com.example.siamLacorns.service.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Без токена открыта только проверка живости; метрики Prometheus - только админам
+// (экспорт метрик в тестах по умолчанию выключен, поэтому @AutoConfigureObservability)
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("h2")
+class ActuatorSecurityTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Test
+	void healthIsPublic() throws Exception {
+		mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+	}
+
+	@Test
+	void prometheusRequiresToken() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+	}
+
+	@Test
+	void prometheusIsClosedToUsers() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus").header("Authorization", token("USER")))
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void prometheusIsOpenToAdmins() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus").header("Authorization", token("ADMIN")))
+				.andExpect(status().isOk());
+	}
+
+	private String token(String role) {
+		String name = "actuator_" + UUID.randomUUID().toString().substring(0, 8);
+		User user = new User(name, name + "@test.local", LocalDate.of(1995, 1, 1), "password");
+		user.setRole(role);
+		return "Bearer " + jwtUtil.generateToken(new UserDetailsImpl(userRepository.save(user)));
+	}
+}
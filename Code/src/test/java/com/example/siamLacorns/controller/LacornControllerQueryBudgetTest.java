@@ -0,0 +1,112 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.model.Actor;
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.repository.LacornRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.siamLacorns.support.QueryAssertions.assertMaxQueries;
+import static com.example.siamLacorns.support.QueryAssertions.countQueries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Число SQL-операторов на запрос не должно расти с числом лакорнов, эпизодов и актёров
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class LacornControllerQueryBudgetTest {
+
+	private static final int CATALOG_SIZE = 30;
+	private static final int EPISODES = 12;
+	private static final int ACTORS = 6;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private LacornRepository lacornRepository;
+
+	private final List<Long> lacornIds = new ArrayList<>();
+
+	@BeforeEach
+	void createCatalog() {
+		// Контекст и база общие для всех тестов: имена актёров уникальны, поэтому у каждого прогона свой суффикс
+		lacornIds.clear();
+		String run = UUID.randomUUID().toString();
+		for (int i = 0; i < CATALOG_SIZE; i++) {
+			lacornIds.add(lacornRepository.save(lacorn("Budget " + i + " " + run)).getId());
+		}
+	}
+
+	@Test
+	void catalogPageStaysWithinBudget() throws Exception {
+		assertMaxQueries(12, () -> mockMvc.perform(get("/api/lacorns").param("size", String.valueOf(CATALOG_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.length()").value(CATALOG_SIZE)));
+	}
+
+	@Test
+	void catalogPageCostDoesNotDependOnPageSize() throws Exception {
+		mockMvc.perform(get("/api/lacorns").param("size", "1")).andExpect(status().isOk());
+
+		long smallPage = countQueries(() -> mockMvc.perform(get("/api/lacorns").param("size", "5"))
+				.andExpect(status().isOk()));
+		long largePage = countQueries(() -> mockMvc.perform(get("/api/lacorns").param("size", String.valueOf(CATALOG_SIZE)))
+				.andExpect(status().isOk()));
+		assertEquals(smallPage, largePage, "Catalog page issues extra SQL per lacorn");
+	}
+
+	@Test
+	void lacornDetailsStayWithinBudget() throws Exception {
+		Long id = lacornIds.get(0);
+		assertMaxQueries(8, () -> mockMvc.perform(get("/api/lacorns/{id}", id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.actors.length()").value(ACTORS)));
+
+		// Повторно карточка отдаётся из кэша
+		assertMaxQueries(0, () -> mockMvc.perform(get("/api/lacorns/{id}", id)).andExpect(status().isOk()));
+	}
+
+	@Test
+	void episodesStayWithinBudget() throws Exception {
+		Long id = lacornIds.get(1);
+		assertMaxQueries(4, () -> mockMvc.perform(get("/api/lacorns/{id}/episodes", id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(EPISODES)));
+	}
+
+	private static Lacorn lacorn(String title) {
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle(title);
+		lacorn.setReleaseYear(2020);
+		lacorn.setRating(7.5);
+		lacorn.setAgeRating("PG-13");
+		lacorn.setStatus(Lacorn.SeriesStatus.COMPLETED);
+		lacorn.setGenres(new ArrayList<>(List.of("Drama", "Romance")));
+		lacorn.setProductionCountries(new ArrayList<>(List.of("Thailand")));
+		for (int i = 0; i < ACTORS; i++) {
+			Actor actor = new Actor();
+			actor.setName(title + " actor " + i);
+			lacorn.getActors().add(actor);
+		}
+		for (int i = 1; i <= EPISODES; i++) {
+			Episode episode = new Episode("Episode " + i, i, 1, "/videos/" + title + "-" + i + ".mp4");
+			episode.setLacorn(lacorn);
+			lacorn.getEpisodes().add(episode);
+		}
+		return lacorn;
+	}
+}
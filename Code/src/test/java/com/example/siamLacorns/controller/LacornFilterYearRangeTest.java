@@ -0,0 +1,35 @@
+package com.example.siamLacorns.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Перевёрнутый диапазон лет - ошибка клиента (400), а не 500 из индекса фасетов
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class LacornFilterYearRangeTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void reversedYearRangeIsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/lacorns/filter").param("yearFrom", "2020").param("yearTo", "2010"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/lacorns/facets").param("yearFrom", "2020").param("yearTo", "2010"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void singleYearRangeIsAccepted() throws Exception {
+		mockMvc.perform(get("/api/lacorns/filter").param("yearFrom", "2020").param("yearTo", "2020"))
+				.andExpect(status().isOk());
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.service.LacornService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Страница поиска за последним совпадением пуста, даже если смещение не помещается в int
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class LacornSearchPagingTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private LacornService lacornService;
+
+	private String token;
+
+	@BeforeEach
+	void createLacorn() {
+		token = "paging" + UUID.randomUUID().toString().replace("-", "");
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Search " + token);
+		lacornService.createLacorn(lacorn);
+	}
+
+	@Test
+	void firstPageFindsLacorn() throws Exception {
+		mockMvc.perform(get("/api/lacorns/search").param("query", token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.length()").value(1))
+				.andExpect(jsonPath("$.totalElements").value(1));
+	}
+
+	@Test
+	void pagePastLastHitIsEmpty() throws Exception {
+		mockMvc.perform(get("/api/lacorns/search").param("query", token).param("page", "3").param("size", "20"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.length()").value(0));
+	}
+
+	@Test
+	void hugePageNumberIsEmptyNotServerError() throws Exception {
+		mockMvc.perform(get("/api/lacorns/search").param("query", token)
+						.param("page", String.valueOf(Integer.MAX_VALUE)).param("size", "20"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.length()").value(0));
+	}
+}
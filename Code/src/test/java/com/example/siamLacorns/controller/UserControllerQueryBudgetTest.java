@@ -0,0 +1,96 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.config.JwtUtil;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.SeriesCollection;
+import com.example.siamLacorns.model.User;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.example.siamLacorns.repository.UserRepository;
+import com.example.siamLacorns.service.UserDetailsImpl;
+import com.example.siamLacorns.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.siamLacorns.support.QueryAssertions.assertMaxQueries;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Профиль и коллекции пользователя: число SQL-операторов не должно зависеть от наполнения коллекций
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class UserControllerQueryBudgetTest {
+
+	private static final int LACORNS_PER_COLLECTION = 10;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private LacornRepository lacornRepository;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	private User user;
+	private String token;
+
+	@BeforeEach
+	void createUser() {
+		List<Lacorn> lacorns = new ArrayList<>();
+		for (int i = 0; i < LACORNS_PER_COLLECTION; i++) {
+			Lacorn lacorn = new Lacorn();
+			lacorn.setTitle("Collected " + i);
+			lacorn.setGenres(new ArrayList<>(List.of("Drama")));
+			lacorns.add(lacornRepository.save(lacorn));
+		}
+
+		String name = "budget_" + UUID.randomUUID().toString().substring(0, 8);
+		User newUser = new User(name, name + "@test.local", LocalDate.of(1995, 1, 1), "password");
+		newUser.setRole("USER");
+		for (String collectionName : UserService.DEFAULT_COLLECTIONS) {
+			SeriesCollection collection = new SeriesCollection(collectionName, newUser);
+			lacorns.forEach(collection::addLacorn);
+			newUser.getCollections().add(collection);
+		}
+		user = userRepository.save(newUser);
+		token = "Bearer " + jwtUtil.generateToken(new UserDetailsImpl(user));
+	}
+
+	@Test
+	void collectionsStayWithinBudget() throws Exception {
+		// Загрузка пользователя по токену + пользователь с коллекциями
+		assertMaxQueries(3, () -> mockMvc.perform(get("/api/users/{userId}/collections", user.getId())
+						.header("Authorization", token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(UserService.DEFAULT_COLLECTIONS.size())));
+	}
+
+	@Test
+	void profileStaysWithinBudget() throws Exception {
+		assertMaxQueries(4, () -> mockMvc.perform(get("/api/users/me").header("Authorization", token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.username").value(user.getUsername())));
+	}
+
+	@Test
+	void userByIdStaysWithinBudget() throws Exception {
+		assertMaxQueries(3, () -> mockMvc.perform(get("/api/users/{id}", user.getId()).header("Authorization", token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.collections.length()").value(UserService.DEFAULT_COLLECTIONS.size())));
+	}
+}
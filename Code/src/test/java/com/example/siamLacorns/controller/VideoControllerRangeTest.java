@@ -0,0 +1,89 @@
+package com.example.siamLacorns.controller;
+
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.repository.EpisodeRepository;
+import com.example.siamLacorns.repository.LacornRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Диапазоны за пределами файла - 416 с Content-Range: bytes */длина, а не 206 с отрицательной длиной
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class VideoControllerRangeTest {
+
+	private static final int LENGTH = 1000;
+
+	private static Path videoRoot;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private LacornRepository lacornRepository;
+
+	@Autowired
+	private EpisodeRepository episodeRepository;
+
+	private Long episodeId;
+
+	@DynamicPropertySource
+	static void videoProperties(DynamicPropertyRegistry registry) throws IOException {
+		videoRoot = Files.createTempDirectory("range-videos");
+		registry.add("video.storage.root", videoRoot::toString);
+	}
+
+	@BeforeEach
+	void createEpisode() throws IOException {
+		String fileName = "range-" + UUID.randomUUID() + ".mp4";
+		Files.write(videoRoot.resolve(fileName), new byte[LENGTH]);
+
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Range " + UUID.randomUUID());
+		lacorn = lacornRepository.save(lacorn);
+		Episode episode = new Episode("Episode 1", 1, 1, "/videos/" + fileName);
+		episode.setLacorn(lacorn);
+		episodeId = episodeRepository.save(episode).getId();
+	}
+
+	@Test
+	void rangeInsideFileIsPartialContent() throws Exception {
+		mockMvc.perform(get("/api/lacorns/episodes/{id}/stream", episodeId).header(HttpHeaders.RANGE, "bytes=990-"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 990-999/" + LENGTH))
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10));
+	}
+
+	@Test
+	void openRangeStartingPastEndIsNotSatisfiable() throws Exception {
+		mockMvc.perform(get("/api/lacorns/episodes/{id}/stream", episodeId).header(HttpHeaders.RANGE, "bytes=5000-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + LENGTH));
+	}
+
+	@Test
+	void closedRangeStartingAtLengthIsNotSatisfiable() throws Exception {
+		mockMvc.perform(get("/api/lacorns/episodes/{id}/stream", episodeId)
+						.header(HttpHeaders.RANGE, "bytes=" + LENGTH + "-" + (LENGTH + 10)))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + LENGTH));
+	}
+}
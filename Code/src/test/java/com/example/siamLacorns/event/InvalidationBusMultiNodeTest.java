@@ -0,0 +1,106 @@
+package com.example.siamLacorns.event;
+
+import com.example.siamLacorns.SiamLacornsApplication;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.service.LacornService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Два узла приложения на одной базе: запись на одном сбрасывает кэш другого через LISTEN/NOTIFY
+@Testcontainers(disabledWithoutDocker = true)
+class InvalidationBusMultiNodeTest {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	private static ConfigurableApplicationContext nodeA;
+	private static ConfigurableApplicationContext nodeB;
+
+	@BeforeAll
+	static void startNodes() {
+		nodeA = startNode();
+		nodeB = startNode();
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		if (nodeA != null) nodeA.close();
+		if (nodeB != null) nodeB.close();
+	}
+
+	@Test
+	void updateOnOneNodeInvalidatesCacheOnAnother() throws Exception {
+		LacornService serviceA = nodeA.getBean(LacornService.class);
+		LacornService serviceB = nodeB.getBean(LacornService.class);
+
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Before");
+		Long id = serviceA.createLacorn(lacorn).getId();
+
+		// Узел B кэширует старую версию
+		assertEquals("Before", serviceB.getLacornById(id, null).getTitle());
+
+		Lacorn details = new Lacorn();
+		details.setTitle("After");
+		serviceA.updateLacorn(id, details);
+
+		awaitEquals("After", () -> serviceB.getLacornById(id, null).getTitle());
+	}
+
+	@Test
+	void deleteOnOneNodeIsVisibleOnAnother() throws Exception {
+		LacornService serviceA = nodeA.getBean(LacornService.class);
+		LacornService serviceB = nodeB.getBean(LacornService.class);
+
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Doomed");
+		Long id = serviceA.createLacorn(lacorn).getId();
+		assertEquals("Doomed", serviceB.getLacornById(id, null).getTitle());
+
+		serviceA.deleteLacorn(id);
+
+		awaitEquals(true, () -> {
+			try {
+				serviceB.getLacornById(id, null);
+				return false;
+			} catch (RuntimeException e) {
+				return true;
+			}
+		});
+	}
+
+	private static ConfigurableApplicationContext startNode() {
+		// Аргументы командной строки перекрывают application.properties
+		return new SpringApplicationBuilder(SiamLacornsApplication.class).run(
+				"--server.port=0",
+				"--spring.datasource.url=" + postgres.getJdbcUrl(),
+				"--spring.datasource.username=" + postgres.getUsername(),
+				"--spring.datasource.password=" + postgres.getPassword(),
+				"--cache.invalidation.mode=postgres",
+				"--cache.invalidation.poll-timeout-ms=100");
+	}
+
+	private static <T> void awaitEquals(T expected, Supplier<T> actual) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		T last = null;
+		while (System.currentTimeMillis() < deadline) {
+			last = actual.get();
+			if (expected.equals(last)) {
+				return;
+			}
+			Thread.sleep(50);
+		}
+		fail("Expected " + expected + " but was " + last);
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.siamLacorns.search;
+
+import com.example.siamLacorns.dto.SuggestionDTO;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.service.LacornService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Ключи индекса обрезаны до 48 символов, но запрос длиннее них всё равно находит своё название
+@SpringBootTest
+@ActiveProfiles("h2")
+class TitleSuggesterLongQueryTest {
+
+	@Autowired
+	private LacornService lacornService;
+
+	@Autowired
+	private TitleSuggester titleSuggester;
+
+	@Test
+	void queryLongerThanIndexKeyFindsTitle() throws Exception {
+		String prefix = "longtitle" + UUID.randomUUID().toString().replace("-", "") + " of the very long lacorn";
+		String title = prefix + " part one";
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle(title);
+		Long id = lacornService.createLacorn(lacorn).getId();
+
+		List<SuggestionDTO> found = awaitSuggestions(title);
+		assertEquals(1, found.size());
+		assertEquals(id, found.get(0).getId());
+
+		// Совпадают первые 48 символов, но не весь запрос
+		assertTrue(titleSuggester.suggest(prefix + " part two", 10).isEmpty());
+	}
+
+	private List<SuggestionDTO> awaitSuggestions(String query) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			List<SuggestionDTO> found = titleSuggester.suggest(query, 10);
+			if (!found.isEmpty()) {
+				return found;
+			}
+			Thread.sleep(50);
+		}
+		fail("No suggestions for " + query);
+		return List.of();
+	}
+}
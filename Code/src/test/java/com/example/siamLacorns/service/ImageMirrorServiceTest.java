@@ -0,0 +1,260 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.dto.ActorDTO;
+import com.example.siamLacorns.dto.TMDBLacornDTO;
+import com.example.siamLacorns.exception.ValidationException;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.StoredBlob;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.example.siamLacorns.repository.StoredBlobRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Картинки TMDB переезжают в хранилище блобов; вместо CDN - локальный HTTP-сервер с заданными сбоями
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class ImageMirrorServiceTest {
+
+	private static final int FLAKY_FAILURES = 2;
+
+	@Container
+	@ServiceConnection
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	// Сколько раз запрошен каждый путь на «CDN»
+	private static final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+	private static final HttpServer cdn = startCdn();
+
+	@Autowired
+	private TMDBIntegrationService tmdbIntegrationService;
+
+	@Autowired
+	private ImageMirrorService imageMirrorService;
+
+	@Autowired
+	private LacornService lacornService;
+
+	@Autowired
+	private BlobStorageService blobStorageService;
+
+	@Autowired
+	private LacornRepository lacornRepository;
+
+	@Autowired
+	private StoredBlobRepository blobRepository;
+
+	@DynamicPropertySource
+	static void mirrorProperties(DynamicPropertyRegistry registry) throws IOException {
+		String blobRoot = Files.createTempDirectory("mirror-blobs").toString();
+		registry.add("tmdb.image.base", ImageMirrorServiceTest::cdnBase);
+		registry.add("blob.storage.root", () -> blobRoot);
+		registry.add("image.mirror.initial-backoff", () -> "20ms");
+		registry.add("image.mirror.max-backoff", () -> "100ms");
+		registry.add("image.mirror.sweep-initial-delay-ms", () -> "3600000");
+	}
+
+	@AfterAll
+	static void stopCdn() {
+		cdn.stop(0);
+	}
+
+	@Test
+	void importMirrorsPosterAndRetriesFlakyActorPhoto() throws Exception {
+		String poster = "/w500/" + UUID.randomUUID() + ".jpg";
+		String photo = "/w300/flaky-" + UUID.randomUUID() + ".jpg";
+
+		TMDBLacornDTO dto = new TMDBLacornDTO();
+		dto.setTitle("Mirror " + UUID.randomUUID());
+		dto.setPosterUrl(cdnBase() + poster);
+		ActorDTO actor = new ActorDTO();
+		actor.setName("Actor " + UUID.randomUUID());
+		actor.setPhotoUrl(cdnBase() + photo);
+		dto.setActors(List.of(actor));
+		Long id = tmdbIntegrationService.importFromTMDB(dto).getId();
+
+		awaitEquals(true, () -> isLocal(posterUrl(id)) && isLocal(photoUrl(id)));
+
+		assertEquals(1, hits.get(poster).get());
+		assertEquals(FLAKY_FAILURES + 1, hits.get(photo).get());
+		for (String url : List.of(posterUrl(id), photoUrl(id))) {
+			String hash = ImageService.hashFromUrl(url).orElseThrow();
+			assertEquals(1, blob(hash).getRefCount());
+			assertTrue(Files.exists(blobStorageService.path(hash)));
+		}
+	}
+
+	@Test
+	void sharedPosterIsDownloadedOnceAndReferencedByEveryRow() throws Exception {
+		String poster = "/w500/shared-" + UUID.randomUUID() + ".jpg";
+		Long first = createLacorn(cdnBase() + poster);
+		Long second = createLacorn(cdnBase() + poster);
+
+		imageMirrorService.mirrorLacorn(first);
+		imageMirrorService.mirrorLacorn(second);
+
+		awaitEquals(true, () -> isLocal(posterUrl(first)) && isLocal(posterUrl(second)));
+		assertEquals(posterUrl(first), posterUrl(second));
+		assertEquals(1, hits.get(poster).get());
+		assertEquals(2, blob(ImageService.hashFromUrl(posterUrl(first)).orElseThrow()).getRefCount());
+	}
+
+	@Test
+	void missingImageKeepsExternalUrlAndIsNotRetried() throws Exception {
+		String poster = "/w500/missing-" + UUID.randomUUID() + ".jpg";
+		Long id = createLacorn(cdnBase() + poster);
+
+		int failedBefore = (int) imageMirrorService.stats().get("failed");
+		assertEquals(1, imageMirrorService.mirrorLacorn(id));
+		awaitEquals(true, () -> (int) imageMirrorService.stats().get("failed") > failedBefore);
+
+		// 404 запомнен: повторной загрузки нет
+		assertEquals(0, imageMirrorService.mirrorLacorn(id));
+		assertEquals(1, hits.get(poster).get());
+		assertEquals(cdnBase() + poster, posterUrl(id));
+	}
+
+	@Test
+	void localPosterCopiedToAnotherLacornHoldsItsOwnReference() throws Exception {
+		String poster = "/w500/copied-" + UUID.randomUUID() + ".jpg";
+		Long original = createLacorn(cdnBase() + poster);
+		imageMirrorService.mirrorLacorn(original);
+		awaitEquals(true, () -> isLocal(posterUrl(original)));
+		String hash = ImageService.hashFromUrl(posterUrl(original)).orElseThrow();
+
+		Lacorn copy = new Lacorn();
+		copy.setTitle("Copy " + UUID.randomUUID());
+		copy.setPosterUrl(posterUrl(original));
+		lacornService.createLacorn(copy);
+		assertEquals(2, blob(hash).getRefCount());
+
+		// Удаление исходного лакорна не оставляет копию без файла
+		lacornService.deleteLacorn(original);
+		assertEquals(1, blob(hash).getRefCount());
+	}
+
+	@Test
+	void localPosterWithoutBlobIsRejected() {
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Unknown " + UUID.randomUUID());
+		lacorn.setPosterUrl(ImageService.url("0".repeat(64)));
+		assertThrows(ValidationException.class, () -> lacornService.createLacorn(lacorn));
+	}
+
+	private Long createLacorn(String posterUrl) {
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Mirror " + UUID.randomUUID());
+		lacorn.setPosterUrl(posterUrl);
+		return lacornRepository.save(lacorn).getId();
+	}
+
+	private String posterUrl(Long lacornId) {
+		return lacornRepository.findPosterUrlById(lacornId).orElse(null);
+	}
+
+	private String photoUrl(Long lacornId) {
+		return (String) lacornRepository.findActorLinksByLacornId(lacornId).get(0)[3];
+	}
+
+	private StoredBlob blob(String hash) {
+		return blobRepository.findById(hash).orElseThrow();
+	}
+
+	private static boolean isLocal(String url) {
+		return url != null && url.startsWith(ImageService.URL_PREFIX);
+	}
+
+	private static String cdnBase() {
+		return "http://localhost:" + cdn.getAddress().getPort() + "/t/p";
+	}
+
+	// flaky-* отвечает 503 первые FLAKY_FAILURES раз, missing-* - всегда 404, остальное - JPEG своего цвета
+	private static HttpServer startCdn() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+			server.createContext("/t/p", ImageMirrorServiceTest::serve);
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void serve(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath().substring("/t/p".length());
+		int hit = hits.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+		try (exchange) {
+			if (path.contains("/missing-")) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			if (path.contains("/flaky-") && hit <= FLAKY_FAILURES) {
+				exchange.getResponseHeaders().set("Retry-After", "0");
+				exchange.sendResponseHeaders(503, -1);
+				return;
+			}
+			byte[] body = jpeg(new Color(path.hashCode() & 0xFFFFFF));
+			exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+	private static byte[] jpeg(Color color) throws IOException {
+		BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				image.setRGB(x, y, color.getRGB());
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", out);
+		return out.toByteArray();
+	}
+
+	private static <T> void awaitEquals(T expected, Supplier<T> actual) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		T last = null;
+		while (System.currentTimeMillis() < deadline) {
+			last = actual.get();
+			if (expected.equals(last)) {
+				return;
+			}
+			Thread.sleep(50);
+		}
+		fail("Expected " + expected + " but was " + last);
+	}
+}
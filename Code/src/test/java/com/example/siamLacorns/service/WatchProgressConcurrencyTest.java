@@ -0,0 +1,161 @@
+package com.example.siamLacorns.service;
+
+import com.example.siamLacorns.model.Episode;
+import com.example.siamLacorns.model.Lacorn;
+import com.example.siamLacorns.model.User;
+import com.example.siamLacorns.model.UserWatchHistory;
+import com.example.siamLacorns.repository.EpisodeRepository;
+import com.example.siamLacorns.repository.LacornRepository;
+import com.example.siamLacorns.repository.UserRepository;
+import com.example.siamLacorns.repository.UserWatchHistoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Параллельные heartbeat'ы не должны ни плодить дубликаты, ни терять последнюю позицию
+@SpringBootTest(properties = "watch.progress.flush-interval-ms=3600000")
+@Testcontainers(disabledWithoutDocker = true)
+class WatchProgressConcurrencyTest {
+
+	private static final int THREADS = 16;
+	private static final int WRITES_PER_THREAD = 200;
+
+	@Container
+	@ServiceConnection
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private LacornRepository lacornRepository;
+
+	@Autowired
+	private EpisodeRepository episodeRepository;
+
+	@Autowired
+	private UserWatchHistoryRepository watchHistoryRepository;
+
+	@Autowired
+	private WatchProgressBuffer watchProgressBuffer;
+
+	@Test
+	void concurrentUpsertsKeepSingleLatestRow() throws Exception {
+		User user = createUser();
+		Episode episode = createEpisode(createLacorn());
+		Long lacornId = episode.getLacorn().getId();
+		LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < WRITES_PER_THREAD; i++) {
+				// Позиции потоков перемешаны во времени: порядок прихода не совпадает с порядком отметок
+				int position = i * THREADS + thread;
+				watchHistoryRepository.upsertProgress(user.getId(), lacornId, episode.getId(),
+						position, false, base.plusSeconds(position));
+			}
+		});
+
+		List<UserWatchHistory> rows = watchHistoryRepository.findByUserId(user.getId());
+		int lastPosition = THREADS * WRITES_PER_THREAD - 1;
+		assertEquals(1, rows.size());
+		assertEquals(lastPosition, rows.get(0).getCurrentTime());
+		assertEquals(base.plusSeconds(lastPosition), rows.get(0).getLastWatched());
+	}
+
+	@Test
+	void bufferedHeartbeatsSurviveConcurrentFlushes() throws Exception {
+		User user = createUser();
+		List<Episode> episodes = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			episodes.add(createEpisode(createLacorn()));
+		}
+
+		CountDownLatch writersDone = new CountDownLatch(1);
+		Thread flusher = new Thread(() -> {
+			while (writersDone.getCount() > 0) {
+				watchProgressBuffer.flush();
+			}
+		});
+		flusher.start();
+
+		// У каждого потока свой сериал, поэтому последняя позиция по нему известна заранее
+		runConcurrently(thread -> {
+			Episode episode = episodes.get(thread);
+			for (int i = 0; i < WRITES_PER_THREAD; i++) {
+				watchProgressBuffer.record(user.getId(), episode.getLacorn().getId(), episode.getId(), i, false);
+			}
+		});
+		writersDone.countDown();
+		flusher.join();
+		watchProgressBuffer.flush();
+		// Повторные heartbeat'ы по тому же ключу не раздувают счётчик буфера
+		assertEquals(0, watchProgressBuffer.size());
+
+		List<UserWatchHistory> rows = watchHistoryRepository.findByUserId(user.getId());
+		assertEquals(THREADS, rows.size());
+		for (UserWatchHistory row : rows) {
+			assertEquals(WRITES_PER_THREAD - 1, row.getCurrentTime());
+		}
+	}
+
+	private void runConcurrently(ThreadTask task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < THREADS; thread++) {
+			int index = thread;
+			futures.add(executor.submit(() -> {
+				start.await();
+				task.run(index);
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(2, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+	}
+
+	private User createUser() {
+		String name = "watcher-" + UUID.randomUUID();
+		return userRepository.save(new User(name, name + "@test.local", LocalDate.of(1990, 1, 1), "secret"));
+	}
+
+	private Lacorn createLacorn() {
+		Lacorn lacorn = new Lacorn();
+		lacorn.setTitle("Stress " + UUID.randomUUID());
+		return lacornRepository.save(lacorn);
+	}
+
+	private Episode createEpisode(Lacorn lacorn) {
+		Episode episode = new Episode("Episode 1", 1, 1, "/videos/stress.mp4");
+		episode.setLacorn(lacorn);
+		return episodeRepository.save(episode);
+	}
+
+	@FunctionalInterface
+	private interface ThreadTask {
+		void run(int thread);
+	}
+}
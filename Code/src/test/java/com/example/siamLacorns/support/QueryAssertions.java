@@ -0,0 +1,47 @@
+package com.example.siamLacorns.support;
+
+import com.example.siamLacorns.config.SqlStatementCounter;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Бюджет SQL-операторов для интеграционных тестов. Считает то же, что SqlStatementMetricsFilter:
+ * операторы Hibernate в текущем потоке. MockMvc выполняет запрос в потоке теста, поэтому
+ * assertMaxQueries(3, () -> mockMvc.perform(...)) покрывает весь запрос целиком.
+ */
+public final class QueryAssertions {
+
+	private QueryAssertions() {
+	}
+
+	public static <T> T assertMaxQueries(int maxQueries, ThrowingSupplier<T> action) {
+		long before = SqlStatementCounter.current();
+		T result = get(action);
+		long queries = SqlStatementCounter.current() - before;
+		if (queries > maxQueries) {
+			fail("Expected at most " + maxQueries + " SQL statements, but " + queries + " were issued");
+		}
+		return result;
+	}
+
+	public static long countQueries(ThrowingSupplier<?> action) {
+		long before = SqlStatementCounter.current();
+		get(action);
+		return SqlStatementCounter.current() - before;
+	}
+
+	private static <T> T get(ThrowingSupplier<T> action) {
+		try {
+			return action.get();
+		} catch (Throwable e) {
+			if (e instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (e instanceof Error error) {
+				throw error;
+			}
+			throw new IllegalStateException(e);
+		}
+	}
+}